@@ -27,7 +27,6 @@ package be.yildizgames.authentication.application;
 
 import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplateConfiguration;
 import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
-import be.yildizgames.authentication.infrastructure.io.mail.EmailService;
 import be.yildizgames.common.authentication.AuthenticationError;
 import be.yildizgames.common.authentication.TemporaryAccount;
 import be.yildizgames.common.authentication.TemporaryAccountValidationException;
@@ -55,28 +54,25 @@ public class AccountCreationManager {
     private final AccountCreator accountCreator;
 
     /**
-     * To send emails.
+     * Template of the email to send.
      */
-    private final EmailService emailService;
+    private final EmailTemplateConfiguration configuration;
 
     /**
-     * Template of the email to send.
+     * Compiled email templates.
      */
-    private final EmailTemplateConfiguration configuration;
+    private final EmailTemplateCache templates = new EmailTemplateCache();
 
     /**
      * Create a new instance.
-     * @param accountCreator To materialize the account.
-     * @param emailService To send emails.
+     * @param accountCreator To materialize the account and its confirmation email.
      * @param configuration Template of the email to send.
      */
-    public AccountCreationManager(final AccountCreator accountCreator, final EmailService emailService, final EmailTemplateConfiguration configuration) {
+    public AccountCreationManager(final AccountCreator accountCreator, final EmailTemplateConfiguration configuration) {
         super();
         Objects.requireNonNull(accountCreator);
-        Objects.requireNonNull(emailService);
         Objects.requireNonNull(configuration);
         this.accountCreator = accountCreator;
-        this.emailService = emailService;
         this.configuration = configuration;
     }
 
@@ -97,18 +93,23 @@ public class AccountCreationManager {
         }
         UUID token = UUID.randomUUID();
         try {
-            if (this.accountCreator.emailAlreadyExist(dto.email)) {
+            AccountAvailability availability = this.accountCreator.checkAvailability(dto.login, dto.email);
+            if (availability.emailExisting) {
                 result.setEmailExisting(true);
                 this.logger.debug("Account for {0} not created, email already exists.", dto.login);
             }
-            if (this.accountCreator.loginAlreadyExist(dto.login)) {
+            if (availability.loginExisting) {
                 result.setAccountExisting(true);
                 this.logger.debug("Account for {0} not created, account already exists.", dto.login);
             }
             if (!result.hasError()) {
-                this.accountCreator.create(dto, token);
-                this.emailService.send(new TemporaryAccountEmail(this.configuration.getEmailTemplatePath(dto.language), dto.login, dto.email, token.toString()));
+                CompiledEmailTemplate template = this.templates.get(this.configuration.getEmailTemplatePath(dto.language));
+                this.accountCreator.create(dto, token, new TemporaryAccountEmail(template, dto.login, dto.email, token.toString()));
             }
+        } catch (EmailAlreadyExistException e) {
+            //Another creation with the same email was stored between the availability check and the write.
+            result.setEmailExisting(true);
+            this.logger.debug("Account for {0} not created, email already exists.", dto.login);
         } catch (IllegalStateException e) {
             this.logger.error("Error while persisting temp account {0} : {1}", dto, token, e);
             result.setTechnicalIssue(true);
@@ -124,6 +125,14 @@ public class AccountCreationManager {
         this.accountCreator.confirm(validation);
     }
 
+    /**
+     * Confirm several temporary accounts at once.
+     * @param validations Dtos containing the confirmation data.
+     */
+    public void confirmAccounts(final List<AccountConfirmationDto> validations) {
+        this.accountCreator.confirmAll(validations);
+    }
+
     /**
      * Fill the temporary account validation errors
      * @param result Result to fill.
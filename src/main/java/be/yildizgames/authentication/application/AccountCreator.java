@@ -27,8 +27,10 @@
 package be.yildizgames.authentication.application;
 
 import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
 import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -47,7 +49,34 @@ public interface AccountCreator {
 
     boolean emailAlreadyExist(String email);
 
-    void create(TemporaryAccountDto dto, UUID token);
+    /**
+     * Check if a login and an email are already registered.
+     * The default implementation runs both checks separately, implementations should answer with a single lookup.
+     * @param login Login to check.
+     * @param email Email to check.
+     * @return The login and email availability.
+     */
+    default AccountAvailability checkAvailability(String login, String email) {
+        return new AccountAvailability(this.loginAlreadyExist(login), this.emailAlreadyExist(email));
+    }
+
+    /**
+     * Persist a temporary account, with the confirmation email to send.
+     * The email is stored with the account and delivered once it is persisted, if the account cannot be persisted, no email is sent.
+     * @param dto Temporary account to persist.
+     * @param token Token to confirm the account.
+     * @param email Confirmation email to send.
+     * @throws EmailAlreadyExistException If an account with the same email was stored since the availability check.
+     */
+    void create(TemporaryAccountDto dto, UUID token, EmailTemplate email);
 
     void confirm(AccountConfirmationDto validation);
+
+    /**
+     * Confirm several temporary accounts at once, the invalid confirmations are ignored.
+     * @param validations Confirmations to process.
+     */
+    default void confirmAll(List<AccountConfirmationDto> validations) {
+        validations.forEach(this::confirm);
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.properties.PropertiesHelper;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Authentication failure properties read from a property file.
+ *
+ * @author Grégory Van den Borre
+ */
+public class AuthenticationFailurePropertiesStandard implements AuthenticationFailureProperties {
+
+    private final int maximumFailure;
+
+    private final Duration window;
+
+    private final Duration banTime;
+
+    private AuthenticationFailurePropertiesStandard(final Properties properties) {
+        super();
+        Objects.requireNonNull(properties);
+        this.maximumFailure = Integer.parseInt(PropertiesHelper.getValue(properties, "authentication.failure.maximum"));
+        this.window = Duration.ofSeconds(Long.parseLong(PropertiesHelper.getValue(properties, "authentication.failure.window")));
+        this.banTime = Duration.ofSeconds(Long.parseLong(PropertiesHelper.getValue(properties, "authentication.failure.ban.time")));
+    }
+
+    public static AuthenticationFailureProperties fromProperties(Properties properties) {
+        return new AuthenticationFailurePropertiesStandard(properties);
+    }
+
+    @Override
+    public final int getAuthenticationMaximumFailure() {
+        return this.maximumFailure;
+    }
+
+    @Override
+    public final Duration getAuthenticationFailureWindow() {
+        return this.window;
+    }
+
+    @Override
+    public final Duration getAuthenticationFailureBanTime() {
+        return this.banTime;
+    }
+}
@@ -36,87 +36,142 @@ import be.yildizgames.common.authentication.protocol.TokenVerification;
 import be.yildizgames.common.model.PlayerId;
 import be.yildizgames.common.util.Util;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Class handling the business logic about the authentication, it will manage the authentication itself, banned players, number of allowed failed authentications...
+ * This class is thread safe, the sessions and the failures are kept in concurrent structures, so it can be called from several consumers at the same time.
  *
  * @author Grégory Van den Borre
  */
 public class AuthenticationManager {
 
     /**
-     * Time, in milliseconds to wait before being able to try to authenticate again after some failure.
+     * Sessions of the successfully authenticated players.
      */
-    private static final Duration AUTHENTICATION_FAILURE_BAN_TIME = Duration.ofSeconds(15);
+    private final SessionStore authenticatedPlayers;
 
     /**
-     * Number of maximum authentication failure before being banned for a small amount of time.
+     * Check if the inputs are correct following a given set of rules.
      */
-    private static final int AUTHENTICATION_MAXIMUM_FAILURE = 5;
+    private final AuthenticationChecker checker = new SimpleAuthenticationChecker(AuthenticationRules.DEFAULT);
 
     /**
-     * List of successfully setAuthenticated players.
+     * Count the failed authentications and manage the banned players.
      */
-    private final Map<PlayerId, Token> authenticatedPlayers = new HashMap<>();
+    private final FailureTracker failureTracker;
 
     /**
-     * Check if the inputs are correct following a given set of rules.
+     * Provide the authentication logic.
      */
-    private final AuthenticationChecker checker = new SimpleAuthenticationChecker(AuthenticationRules.DEFAULT);
+    private final Authenticator authenticator;
 
     /**
-     * List of failed authentications, the key is the player's name and the value is the number of failure.
+     * Notified when a player connects, the session store notifies when its session ends.
      */
-    private final Map<String, Integer> failedAuthentication = new HashMap<>();
+    private final PresenceTracker presenceTracker;
+
+    public AuthenticationManager(Authenticator authenticator) {
+        this(authenticator, new ExpiringSessionStore(), new FailureTracker());
+    }
 
     /**
-     * List of banned players, the key is the player's name, and the value the time when the ban is removed.
+     * Create a new instance.
+     *
+     * @param authenticator Provide the authentication logic.
+     * @param sessionStore Keep the authenticated players tokens.
+     * @param failureTracker Count the failed authentications and manage the banned players.
      */
-    private final Map<String, LocalDateTime> banned = new HashMap<>();
+    public AuthenticationManager(Authenticator authenticator, SessionStore sessionStore, FailureTracker failureTracker) {
+        this(authenticator, sessionStore, failureTracker, PresenceTracker.disabled());
+    }
 
     /**
-     * Provide the authentication logic.
+     * Create a new instance.
+     *
+     * @param authenticator Provide the authentication logic.
+     * @param sessionStore Keep the authenticated players tokens.
+     * @param failureTracker Count the failed authentications and manage the banned players.
+     * @param presenceTracker Notified when a player connects, the session store notifies when its session ends.
      */
-    private final Authenticator authenticator;
-
-    public AuthenticationManager(Authenticator authenticator) {
+    public AuthenticationManager(Authenticator authenticator, SessionStore sessionStore, FailureTracker failureTracker, PresenceTracker presenceTracker) {
         Objects.requireNonNull(authenticator);
+        Objects.requireNonNull(sessionStore);
+        Objects.requireNonNull(failureTracker);
+        Objects.requireNonNull(presenceTracker);
         this.authenticator = authenticator;
+        this.authenticatedPlayers = sessionStore;
+        this.failureTracker = failureTracker;
+        this.presenceTracker = presenceTracker;
     }
 
     /**
-     * Check if the authentication request is valid and notify the listeners if it is. If the authentication fails, a value is incremented for the player trying to connect, if the value reaches 5, the
-     * player will not be able to connect for 5 minutes.
+     * Check if the authentication request is valid and notify the listeners if it is. If the authentication fails, the failure is counted for the player trying to connect,
+     * if the maximum number of failures is reached in the configured window, the player will not be able to connect for the configured ban time.
      *
      * @param auth Received authentication data.
      * @return A token with the authentication state.
      * @throws NullPointerException If request is null.
+     * @throws AuthenticationBusyException If the authentication cannot be accepted for now.
      */
     public final Token authenticate(final Credentials auth) {
-        this.checkIfToBeBanned(auth.login);
-        Token token;
-        if (this.isBanned(auth.login)) {
-            this.resetConnectionFailure(auth.login);
-            token = Token.banned();
-        } else {
-            try {
-                TokenVerification result = this.authenticator.getPasswordForUser(this.checker.check(auth.login, auth.password));
-                this.addConnectionFailure(auth.login);
-                if (result.authenticated) {
-                    token = this.authenticatedPlayers.getOrDefault(result.userId, this.setAuthenticated(auth.login, result.userId));
-                } else {
-                    token = Token.authenticationFailed();
-                }
-            } catch (UserNotFoundException | CredentialException e) {
-                token = Token.notFound();
+        try {
+            return this.authenticateAsync(auth).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
-        return token;
+    }
+
+    /**
+     * Check if the authentication request is valid, without blocking the caller while the password is verified.
+     *
+     * @param auth Received authentication data.
+     * @return The future token with the authentication state, completed exceptionally with an AuthenticationBusyException if the authentication cannot be accepted for now.
+     * @throws NullPointerException If request is null.
+     */
+    public final CompletableFuture<Token> authenticateAsync(final Credentials auth) {
+        if (this.failureTracker.isBanned(auth.login)) {
+            return CompletableFuture.completedFuture(Token.banned());
+        }
+        Credentials checked;
+        try {
+            checked = this.checker.check(auth.login, auth.password);
+        } catch (CredentialException e) {
+            return CompletableFuture.completedFuture(Token.notFound());
+        }
+        return this.authenticator.getPasswordForUserAsync(checked).handle((result, error) -> {
+            if (error == null) {
+                return this.toToken(auth.login, result);
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof UserNotFoundException) {
+                return Token.notFound();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    /**
+     * Build the token matching a verification result, counting the failure if the verification failed.
+     *
+     * @param login Login of the user.
+     * @param result Verification result.
+     * @return The token for the user.
+     */
+    private Token toToken(final String login, final TokenVerification result) {
+        if (result.authenticated) {
+            return this.setAuthenticated(login, result.userId);
+        }
+        this.failureTracker.addFailure(login);
+        return Token.authenticationFailed();
     }
 
     /**
@@ -126,7 +181,7 @@ public class AuthenticationManager {
      * @return A token for tha player, or not found if nothing is matching.
      */
     public final Token getAuthenticated(final PlayerId id) {
-        return this.authenticatedPlayers.getOrDefault(id, Token.notFound());
+        return this.authenticatedPlayers.get(id);
     }
 
     /**
@@ -140,52 +195,9 @@ public class AuthenticationManager {
         int key = Util.getRandom();
         Token token = Token.authenticated(id, System.currentTimeMillis(), key);
         this.authenticatedPlayers.put(id, token);
-        this.resetConnectionFailure(login);
+        this.failureTracker.reset(login);
+        this.presenceTracker.connected(id);
         return token;
     }
 
-    /**
-     * Check if a player is banned or not.
-     *
-     * @param login Login of the player to check.
-     * @return <code>true</code> if the player is banned.
-     */
-    private boolean isBanned(final String login) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime bannedTime = this.banned.getOrDefault(login, now);
-        return bannedTime.isAfter(now);
-    }
-
-    /**
-     * Check if a player has too many time entered a wrong password,
-     * if so it will be added to the banned list for a limited amount of time.
-     *
-     * @param login Login of the player.
-     */
-    private void checkIfToBeBanned(final String login) {
-        if (this.failedAuthentication.getOrDefault(login, 0).equals(AUTHENTICATION_MAXIMUM_FAILURE)) {
-            this.banned.put(login, LocalDateTime.now().plus(AUTHENTICATION_FAILURE_BAN_TIME));
-        }
-    }
-
-    /**
-     * Increase the number of authentication failure for a player.
-     *
-     * @param login Login of the player.
-     */
-    private void addConnectionFailure(final String login) {
-        int value = this.failedAuthentication.getOrDefault(login, 0);
-        value++;
-        this.failedAuthentication.put(login, value);
-    }
-
-    /**
-     * Reset to 0 the number of authentication failure for a player.
-     *
-     * @param name Name of the player.
-     */
-    private void resetConnectionFailure(final String name) {
-        this.failedAuthentication.put(name, 0);
-    }
-
 }
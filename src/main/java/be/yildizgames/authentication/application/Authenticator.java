@@ -30,6 +30,8 @@ import be.yildizgames.common.authentication.Credentials;
 import be.yildizgames.common.authentication.UserNotFoundException;
 import be.yildizgames.common.authentication.protocol.TokenVerification;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Authenticate Credential with login against their password.
  *
@@ -47,4 +49,20 @@ public interface Authenticator {
      */
     TokenVerification getPasswordForUser(Credentials credentials) throws UserNotFoundException;
 
+    /**
+     * Check if the given login password are correct, without blocking the caller for the password verification.
+     * By default, the verification is done synchronously.
+     *
+     * @param credentials User credentials.
+     * @return The future authentication result, completed exceptionally with a UserNotFoundException if the credentials login does not exists,
+     * or with an AuthenticationBusyException if the verification cannot be accepted.
+     */
+    default CompletableFuture<TokenVerification> getPasswordForUserAsync(Credentials credentials) {
+        try {
+            return CompletableFuture.completedFuture(this.getPasswordForUser(credentials));
+        } catch (UserNotFoundException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
 }
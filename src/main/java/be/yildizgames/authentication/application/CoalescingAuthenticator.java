@@ -0,0 +1,177 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.Credentials;
+import be.yildizgames.common.authentication.UserNotFoundException;
+import be.yildizgames.common.authentication.protocol.TokenVerification;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Authenticator sharing the verification in progress between the identical requests.
+ * When a request arrives for a login and password already being verified, it gets the pending result instead of running the database query and the hash verification again.
+ * The password is only kept as a digest while the verification is in progress.
+ *
+ * @author Grégory Van den Borre
+ */
+public class CoalescingAuthenticator implements Authenticator {
+
+    /**
+     * Authenticator doing the verification.
+     */
+    private final Authenticator delegate;
+
+    /**
+     * Verifications in progress.
+     */
+    private final Map<Key, CompletableFuture<TokenVerification>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Number of requests served by a verification already in progress.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Create a new instance.
+     *
+     * @param delegate Authenticator doing the verification.
+     */
+    public CoalescingAuthenticator(final Authenticator delegate) {
+        super();
+        Objects.requireNonNull(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public final TokenVerification getPasswordForUser(final Credentials credentials) throws UserNotFoundException {
+        try {
+            return this.getPasswordForUserAsync(credentials).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UserNotFoundException) {
+                throw (UserNotFoundException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public final CompletableFuture<TokenVerification> getPasswordForUserAsync(final Credentials credentials) {
+        Objects.requireNonNull(credentials);
+        Key key = new Key(credentials.login, digest(credentials.password));
+        CompletableFuture<TokenVerification> created = new CompletableFuture<>();
+        CompletableFuture<TokenVerification> existing = this.inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            this.coalesced.increment();
+            return existing;
+        }
+        CompletableFuture<TokenVerification> verification;
+        try {
+            verification = this.delegate.getPasswordForUserAsync(credentials);
+        } catch (RuntimeException e) {
+            verification = CompletableFuture.failedFuture(e);
+        }
+        verification.whenComplete((result, error) -> {
+            this.inFlight.remove(key, created);
+            if (error == null) {
+                created.complete(result);
+            } else {
+                created.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * @return The number of requests served by a verification already in progress.
+     */
+    public final long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    /**
+     * @return The number of verifications currently in progress.
+     */
+    public final int getInFlightCount() {
+        return this.inFlight.size();
+    }
+
+    private static byte[] digest(final String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Login and password digest identifying a verification.
+     */
+    private static final class Key {
+
+        private final String login;
+
+        private final byte[] digest;
+
+        private final int hash;
+
+        private Key(final String login, final byte[] digest) {
+            this.login = login;
+            this.digest = digest;
+            this.hash = 31 * login.hashCode() + Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.login.equals(other.login) && Arrays.equals(this.digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Email template parsed once, the body is kept as a list of text parts and variable indexes.
+ * The template file contains the title, '##', and the body, variables in the body are written ${index}.
+ * Rendering only appends the parts to a builder sized for the result, no search or replacement is done.
+ *
+ * @author Grégory Van den Borre
+ */
+final class CompiledEmailTemplate {
+
+    /**
+     * Email title.
+     */
+    private final String title;
+
+    /**
+     * Body parts, either a String or an Integer variable index.
+     */
+    private final Object[] segments;
+
+    /**
+     * Total length of the body text parts.
+     */
+    private final int textLength;
+
+    /**
+     * Compile a template content.
+     *
+     * @param content Template content.
+     */
+    CompiledEmailTemplate(final String content) {
+        super();
+        Objects.requireNonNull(content);
+        String[] values = content.split("##");
+        if (values.length < 2) {
+            throw new EmailException("Invalid content, '##' expected between the title and the body");
+        }
+        this.title = values[0];
+        List<Object> parts = new ArrayList<>();
+        String body = values[1];
+        int length = 0;
+        int start = 0;
+        int index = body.indexOf("${");
+        while (index >= 0) {
+            int end = body.indexOf('}', index + 2);
+            if (end < 0) {
+                break;
+            }
+            String variable = body.substring(index + 2, end);
+            if (!isIndex(variable)) {
+                index = body.indexOf("${", index + 2);
+                continue;
+            }
+            if (index > start) {
+                parts.add(body.substring(start, index));
+                length += index - start;
+            }
+            parts.add(Integer.valueOf(variable));
+            start = end + 1;
+            index = body.indexOf("${", start);
+        }
+        if (start < body.length()) {
+            parts.add(body.substring(start));
+            length += body.length() - start;
+        }
+        this.segments = parts.toArray();
+        this.textLength = length;
+    }
+
+    /**
+     * Load and compile a template file.
+     *
+     * @param file Template file.
+     * @return The compiled template.
+     */
+    static CompiledEmailTemplate load(final Path file) {
+        Objects.requireNonNull(file);
+        if (Files.notExists(file)) {
+            throw new EmailException("Email template file " + file.toString() + " cannot be found.");
+        }
+        try {
+            return new CompiledEmailTemplate(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new EmailException(e);
+        }
+    }
+
+    /**
+     * @return The email title.
+     */
+    String getTitle() {
+        return this.title;
+    }
+
+    /**
+     * Build the body, variables without a matching parameter are kept as is.
+     *
+     * @param params Values of the variables, by index.
+     * @return The body with the variables replaced.
+     */
+    String render(final String... params) {
+        int length = this.textLength;
+        for (Object segment : this.segments) {
+            if (segment instanceof Integer) {
+                int i = (Integer) segment;
+                length += i < params.length ? params[i].length() : 4;
+            }
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (Object segment : this.segments) {
+            if (segment instanceof Integer) {
+                int i = (Integer) segment;
+                if (i < params.length) {
+                    builder.append(params[i]);
+                } else {
+                    builder.append("${").append(i).append('}');
+                }
+            } else {
+                builder.append((String) segment);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isIndex(final String value) {
+        if (value.isEmpty() || value.length() > 9 || (value.length() > 1 && value.charAt(0) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
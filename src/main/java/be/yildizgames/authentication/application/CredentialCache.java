@@ -0,0 +1,260 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.UserNotFoundException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of the active accounts credentials, to authenticate the known players without querying the database.
+ * An entry is kept for a fixed time after being loaded, when the maximum size is reached, the least recently used entry among a sample is evicted.
+ * Unknown logins are never cached, an account being activated is then visible immediately.
+ * Any change to an account credential or state must call invalidate, a load running during an invalidation does not store its result.
+ *
+ * @author Grégory Van den Borre
+ */
+public class CredentialCache {
+
+    /**
+     * Default time an entry is kept.
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    /**
+     * Default maximum number of entries.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    /**
+     * Cached credentials, by login.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every invalidation, to discard the loads started before it.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Time in nanoseconds an entry is kept.
+     */
+    private final long timeToLive;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final int maximumSize;
+
+    /**
+     * Monotonic clock, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Number of lookups served from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of lookups delegated to the loader.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of entries removed because expired or to respect the maximum size.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Cache configuration.
+     */
+    public CredentialCache(final CredentialCacheProperties properties) {
+        this(properties.getCredentialCacheTimeToLive(), properties.getCredentialCacheMaximumSize(), System::nanoTime);
+    }
+
+    /**
+     * Create a new instance with the default values.
+     */
+    public CredentialCache() {
+        this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_SIZE, System::nanoTime);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param timeToLive Time an entry is kept.
+     * @param maximumSize Maximum number of entries.
+     * @param clock Monotonic clock, in nanoseconds.
+     */
+    CredentialCache(final Duration timeToLive, final int maximumSize, final LongSupplier clock) {
+        super();
+        Objects.requireNonNull(timeToLive);
+        Objects.requireNonNull(clock);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.timeToLive = timeToLive.toNanos();
+        this.maximumSize = maximumSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Retrieve the credential for a login, loading it if not cached or expired.
+     *
+     * @param login Account login.
+     * @param loader Load the credential when not in cache.
+     * @return The account credential.
+     * @throws UserNotFoundException If the loader does not find any active account.
+     */
+    public final CachedCredential get(final String login, final CredentialLoader loader) throws UserNotFoundException {
+        Objects.requireNonNull(login);
+        Objects.requireNonNull(loader);
+        long now = this.clock.getAsLong();
+        Entry entry = this.entries.get(login);
+        if (entry != null) {
+            if (now - entry.creation < this.timeToLive) {
+                entry.lastAccess = now;
+                this.hits.increment();
+                return entry.credential;
+            }
+            if (this.entries.remove(login, entry)) {
+                this.evictions.increment();
+            }
+        }
+        this.misses.increment();
+        long stamp = this.invalidations.get();
+        CachedCredential credential = loader.load(login);
+        Entry loaded = new Entry(credential, now);
+        this.entries.put(login, loaded);
+        if (this.invalidations.get() != stamp) {
+            this.entries.remove(login, loaded);
+        }
+        while (this.entries.size() > this.maximumSize) {
+            this.evictOne();
+        }
+        return credential;
+    }
+
+    /**
+     * Remove the credential for a login, the next lookup will load it again.
+     *
+     * @param login Account login.
+     */
+    public final void invalidate(final String login) {
+        this.invalidations.incrementAndGet();
+        this.entries.remove(login);
+    }
+
+    /**
+     * Remove all the credentials.
+     */
+    public final void invalidateAll() {
+        this.invalidations.incrementAndGet();
+        this.entries.clear();
+    }
+
+    /**
+     * @return The number of credentials currently cached.
+     */
+    public final int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return The number of lookups served from the cache.
+     */
+    public final long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return The number of lookups delegated to the loader.
+     */
+    public final long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return The number of credentials removed because expired or to respect the maximum size.
+     */
+    public final long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Evict the least recently used entry among a sample taken at a random point of the map.
+     */
+    private void evictOne() {
+        Map.Entry<String, Entry> oldest = SampledEviction.leastRecentlyUsed(this.entries, e -> e.lastAccess);
+        if (oldest != null && this.entries.remove(oldest.getKey(), oldest.getValue())) {
+            this.evictions.increment();
+        }
+    }
+
+    /**
+     * Load a credential from the persistent storage.
+     */
+    @FunctionalInterface
+    public interface CredentialLoader {
+
+        /**
+         * Load the credential of an active account.
+         *
+         * @param login Account login.
+         * @return The account credential.
+         * @throws UserNotFoundException If no active account exists for the login.
+         */
+        CachedCredential load(String login) throws UserNotFoundException;
+    }
+
+    /**
+     * A credential with its access times.
+     */
+    private static final class Entry {
+
+        private final CachedCredential credential;
+
+        private final long creation;
+
+        private volatile long lastAccess;
+
+        private Entry(final CachedCredential credential, final long creation) {
+            this.credential = credential;
+            this.creation = creation;
+            this.lastAccess = creation;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep the compiled email templates, every template file is read only once.
+ * The directories containing the templates are watched, a template changed on disk is dropped and compiled again on its next use.
+ * The watching thread is only started when the first template is loaded.
+ *
+ * @author Grégory Van den Borre
+ */
+class EmailTemplateCache implements AutoCloseable {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * Compiled templates, by absolute file path.
+     */
+    private final Map<Path, CompiledEmailTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Directories already watched.
+     */
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Notified when a template file changes, null until the first template is loaded or if watching is not supported.
+     */
+    private WatchService watcher;
+
+    /**
+     * True once closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Provide the compiled template for a file, loading it if needed.
+     *
+     * @param file Template file.
+     * @return The compiled template.
+     */
+    final CompiledEmailTemplate get(final Path file) {
+        Objects.requireNonNull(file);
+        Path key = file.toAbsolutePath().normalize();
+        CompiledEmailTemplate template = this.templates.get(key);
+        if (template == null) {
+            this.watch(key.getParent());
+            template = CompiledEmailTemplate.load(key);
+            this.templates.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Start watching the directory of a template.
+     *
+     * @param directory Directory to watch.
+     */
+    private void watch(final Path directory) {
+        if (directory == null || this.closed || !this.watchedDirectories.add(directory)) {
+            return;
+        }
+        try {
+            directory.register(this.watcher(), StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            this.logger.warning("Email templates in {0} will not be reloaded: {1}", directory, e.getMessage());
+        }
+    }
+
+    private synchronized WatchService watcher() throws IOException {
+        if (this.watcher == null) {
+            this.watcher = FileSystems.getDefault().newWatchService();
+            Thread t = new Thread(this::listen, "email-template-watcher");
+            t.setDaemon(true);
+            t.start();
+        }
+        return this.watcher;
+    }
+
+    /**
+     * Drop the templates changed on disk, until closed.
+     */
+    private void listen() {
+        try {
+            while (!this.closed) {
+                WatchKey key = this.watcher.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        Path changed = directory.resolve((Path) event.context());
+                        if (this.templates.remove(changed) != null) {
+                            this.logger.info("Email template {0} changed, it will be reloaded.", changed);
+                        }
+                    } else if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        this.templates.clear();
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            //Closed, stop watching.
+        }
+    }
+
+    @Override
+    public final synchronized void close() throws IOException {
+        this.closed = true;
+        if (this.watcher != null) {
+            this.watcher.close();
+        }
+    }
+}
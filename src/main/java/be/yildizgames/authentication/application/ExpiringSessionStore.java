@@ -0,0 +1,273 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.Token;
+import be.yildizgames.common.model.PlayerId;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Session store removing the sessions not used for a given time, or older than their maximum lifetime.
+ * When the maximum size is reached, the least recently used session among a sample is evicted, this keeps the lookup a single map access.
+ * Expired sessions are removed when read, and by a background task running at a fixed interval.
+ * The presence tracker is notified of every session ending, expired, evicted, removed, or still alive when the store is closed, so the player is set offline.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ExpiringSessionStore implements SessionStore, AutoCloseable {
+
+    /**
+     * Default time a session can stay unused.
+     */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * Default maximum lifetime of a session.
+     */
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(24);
+
+    /**
+     * Default maximum number of sessions.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    /**
+     * Current sessions.
+     */
+    private final Map<PlayerId, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Time in nanoseconds a session can stay unused.
+     */
+    private final long idleTimeout;
+
+    /**
+     * Maximum lifetime in nanoseconds of a session.
+     */
+    private final long lifetime;
+
+    /**
+     * Maximum number of sessions.
+     */
+    private final int maximumSize;
+
+    /**
+     * Monotonic clock, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Notified when a session ends.
+     */
+    private final PresenceTracker presenceTracker;
+
+    /**
+     * Run the expired sessions cleanup.
+     */
+    private final ScheduledExecutorService cleaner;
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Session configuration.
+     */
+    public ExpiringSessionStore(final SessionProperties properties) {
+        this(properties, PresenceTracker.disabled());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Session configuration.
+     * @param presenceTracker Notified when a session ends.
+     */
+    public ExpiringSessionStore(final SessionProperties properties, final PresenceTracker presenceTracker) {
+        this(properties.getSessionIdleTimeout(), properties.getSessionLifetime(), properties.getSessionMaximumSize(), System::nanoTime, presenceTracker);
+    }
+
+    /**
+     * Create a new instance with the default values.
+     */
+    public ExpiringSessionStore() {
+        this(DEFAULT_IDLE_TIMEOUT, DEFAULT_LIFETIME, DEFAULT_MAXIMUM_SIZE, System::nanoTime);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param idleTimeout Time a session can stay unused.
+     * @param lifetime Maximum lifetime of a session.
+     * @param maximumSize Maximum number of sessions.
+     * @param clock Monotonic clock, in nanoseconds.
+     */
+    ExpiringSessionStore(final Duration idleTimeout, final Duration lifetime, final int maximumSize, final LongSupplier clock) {
+        this(idleTimeout, lifetime, maximumSize, clock, PresenceTracker.disabled());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param idleTimeout Time a session can stay unused.
+     * @param lifetime Maximum lifetime of a session.
+     * @param maximumSize Maximum number of sessions.
+     * @param clock Monotonic clock, in nanoseconds.
+     * @param presenceTracker Notified when a session ends.
+     */
+    ExpiringSessionStore(final Duration idleTimeout, final Duration lifetime, final int maximumSize, final LongSupplier clock, final PresenceTracker presenceTracker) {
+        super();
+        Objects.requireNonNull(idleTimeout);
+        Objects.requireNonNull(lifetime);
+        Objects.requireNonNull(clock);
+        Objects.requireNonNull(presenceTracker);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.idleTimeout = idleTimeout.toNanos();
+        this.lifetime = lifetime.toNanos();
+        this.maximumSize = maximumSize;
+        this.clock = clock;
+        this.presenceTracker = presenceTracker;
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(TimeUnit.SECONDS.toNanos(1), Math.min(this.idleTimeout, this.lifetime) / 2);
+        this.cleaner.scheduleAtFixedRate(this::removeExpired, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final Token get(final PlayerId id) {
+        Session session = this.sessions.get(id);
+        if (session == null) {
+            return Token.notFound();
+        }
+        long now = this.clock.getAsLong();
+        if (session.isExpired(now, this.idleTimeout, this.lifetime)) {
+            this.end(id, session);
+            return Token.notFound();
+        }
+        session.lastAccess = now;
+        return session.token;
+    }
+
+    @Override
+    public final void put(final PlayerId id, final Token token) {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(token);
+        this.sessions.put(id, new Session(token, this.clock.getAsLong()));
+        while (this.sessions.size() > this.maximumSize) {
+            this.evictOne();
+        }
+    }
+
+    @Override
+    public final void remove(final PlayerId id) {
+        Session session = this.sessions.get(id);
+        if (session != null) {
+            this.end(id, session);
+        }
+    }
+
+    @Override
+    public final int size() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Remove all the expired sessions.
+     */
+    final void removeExpired() {
+        long now = this.clock.getAsLong();
+        this.sessions.forEach((id, session) -> {
+            if (session.isExpired(now, this.idleTimeout, this.lifetime)) {
+                this.end(id, session);
+            }
+        });
+    }
+
+    /**
+     * Remove a session and notify the player is disconnected, unless the session was already replaced or removed.
+     *
+     * @param id Player id.
+     * @param session Session to remove.
+     */
+    private void end(final PlayerId id, final Session session) {
+        if (this.sessions.remove(id, session)) {
+            this.presenceTracker.disconnected(id);
+        }
+    }
+
+    /**
+     * Evict the least recently used session among a sample taken at a random point of the map.
+     */
+    private void evictOne() {
+        Map.Entry<PlayerId, Session> oldest = SampledEviction.leastRecentlyUsed(this.sessions, s -> s.lastAccess);
+        if (oldest != null) {
+            this.end(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Stop the cleanup and end the remaining sessions, the presence tracker must be closed after, to write the disconnections.
+     */
+    @Override
+    public final void close() {
+        this.cleaner.shutdownNow();
+        this.sessions.forEach(this::end);
+    }
+
+    /**
+     * A token with its access times.
+     */
+    private static final class Session {
+
+        private final Token token;
+
+        private final long creation;
+
+        private volatile long lastAccess;
+
+        private Session(final Token token, final long creation) {
+            this.token = token;
+            this.creation = creation;
+            this.lastAccess = creation;
+        }
+
+        private boolean isExpired(final long now, final long idleTimeout, final long lifetime) {
+            return now - this.lastAccess >= idleTimeout || now - this.creation >= lifetime;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Count the authentication failures of every login in a sliding window, and ban the login for a given time when too many failures occurred.
+ * The state of a login is removed by a hashed timing wheel once its window and its ban are over.
+ * Time is read from a monotonic clock and the state of a known login is updated in place, so a steady flow of failures does not allocate.
+ *
+ * @author Grégory Van den Borre
+ */
+public class FailureTracker implements AutoCloseable {
+
+    /**
+     * Default number of failures to be banned.
+     */
+    public static final int DEFAULT_MAXIMUM_FAILURE = 5;
+
+    /**
+     * Default length of the window where the failures are counted.
+     */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+
+    /**
+     * Default ban duration.
+     */
+    public static final Duration DEFAULT_BAN_TIME = Duration.ofSeconds(15);
+
+    /**
+     * Number of buckets used to slide the window.
+     */
+    private static final int BUCKETS = 10;
+
+    /**
+     * Number of slots in the wheel, must be a power of 2.
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * Duration of a wheel tick, in nanoseconds.
+     */
+    private static final long TICK = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Failure state for every login.
+     */
+    private final Map<String, FailureWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Wheel slots, each slot is the head of a linked list of windows expiring on that slot.
+     */
+    private final FailureWindow[] wheel = new FailureWindow[WHEEL_SIZE];
+
+    /**
+     * Lock protecting the wheel.
+     */
+    private final Object wheelLock = new Object();
+
+    /**
+     * Number of failures to be banned.
+     */
+    private final int maximumFailure;
+
+    /**
+     * Duration of a window bucket, in nanoseconds.
+     */
+    private final long bucketDuration;
+
+    /**
+     * Ban duration, in nanoseconds.
+     */
+    private final long banTime;
+
+    /**
+     * Monotonic clock, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Time when the tracker was created, the ticks are counted from this origin.
+     */
+    private final long origin;
+
+    /**
+     * Last processed wheel tick.
+     */
+    private long currentTick;
+
+    /**
+     * Run the wheel.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Failure configuration.
+     */
+    public FailureTracker(final AuthenticationFailureProperties properties) {
+        this(properties.getAuthenticationMaximumFailure(), properties.getAuthenticationFailureWindow(), properties.getAuthenticationFailureBanTime(), System::nanoTime);
+    }
+
+    /**
+     * Create a new instance with the default values.
+     */
+    public FailureTracker() {
+        this(DEFAULT_MAXIMUM_FAILURE, DEFAULT_WINDOW, DEFAULT_BAN_TIME, System::nanoTime);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param maximumFailure Number of failures in the window to be banned.
+     * @param window Length of the window where the failures are counted.
+     * @param banTime Ban duration.
+     * @param clock Monotonic clock, in nanoseconds.
+     */
+    FailureTracker(final int maximumFailure, final Duration window, final Duration banTime, final LongSupplier clock) {
+        super();
+        Objects.requireNonNull(window);
+        Objects.requireNonNull(banTime);
+        Objects.requireNonNull(clock);
+        if (maximumFailure <= 0) {
+            throw new IllegalArgumentException("Maximum failure must be positive: " + maximumFailure);
+        }
+        this.maximumFailure = maximumFailure;
+        this.bucketDuration = Math.max(1, window.toNanos() / BUCKETS);
+        this.banTime = banTime.toNanos();
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "failure-tracker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleAtFixedRate(this::advance, TICK, TICK, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Check if a login is currently banned.
+     *
+     * @param login Login to check.
+     * @return <code>true</code> if the login is banned.
+     */
+    public final boolean isBanned(final String login) {
+        FailureWindow window = this.windows.get(login);
+        if (window == null) {
+            return false;
+        }
+        synchronized (window) {
+            return window.banned && window.bannedUntil - this.clock.getAsLong() > 0;
+        }
+    }
+
+    /**
+     * Register an authentication failure for a login.
+     * If the number of failures in the window reaches the maximum, the login is banned and its failure count restarts.
+     *
+     * @param login Login who failed to authenticate.
+     * @return <code>true</code> if this failure caused the login to be banned.
+     */
+    public final boolean addFailure(final String login) {
+        while (true) {
+            FailureWindow window = this.windows.computeIfAbsent(login, l -> new FailureWindow(l, BUCKETS));
+            boolean banned;
+            synchronized (window) {
+                if (window.expired) {
+                    continue;
+                }
+                long now = this.clock.getAsLong();
+                window.slide((now - this.origin) / this.bucketDuration);
+                banned = window.total >= this.maximumFailure;
+                if (banned) {
+                    window.clear();
+                    window.banned = true;
+                    window.bannedUntil = now + this.banTime;
+                }
+                long end = Math.max(now + this.bucketDuration * BUCKETS, window.banned ? window.bannedUntil : now);
+                window.deadlineTick = (end - this.origin) / TICK + 1;
+            }
+            this.schedule(window);
+            return banned;
+        }
+    }
+
+    /**
+     * Forget the failures and the ban of a login.
+     *
+     * @param login Login to reset.
+     */
+    public final void reset(final String login) {
+        FailureWindow window = this.windows.remove(login);
+        if (window != null) {
+            synchronized (window) {
+                window.expired = true;
+            }
+            synchronized (this.wheelLock) {
+                this.unlink(window);
+            }
+        }
+    }
+
+    /**
+     * @return The number of logins currently tracked.
+     */
+    public final int size() {
+        return this.windows.size();
+    }
+
+    /**
+     * Process the wheel slots up to the current time, removing the windows whose deadline is reached.
+     */
+    final void advance() {
+        long nowTick = (this.clock.getAsLong() - this.origin) / TICK;
+        synchronized (this.wheelLock) {
+            long last = Math.min(nowTick, this.currentTick + WHEEL_SIZE);
+            for (long tick = this.currentTick + 1; tick <= last; tick++) {
+                this.expireSlot((int) (tick & (WHEEL_SIZE - 1)), nowTick);
+            }
+            this.currentTick = nowTick;
+        }
+    }
+
+    private void expireSlot(final int slot, final long nowTick) {
+        FailureWindow window = this.wheel[slot];
+        while (window != null) {
+            FailureWindow next = window.next;
+            boolean expired;
+            synchronized (window) {
+                expired = window.deadlineTick <= nowTick;
+                if (expired) {
+                    window.expired = true;
+                }
+            }
+            if (expired) {
+                this.unlink(window);
+                this.windows.remove(window.login, window);
+            }
+            window = next;
+        }
+    }
+
+    private void schedule(final FailureWindow window) {
+        synchronized (this.wheelLock) {
+            if (window.expired) {
+                return;
+            }
+            int slot = (int) (window.deadlineTick & (WHEEL_SIZE - 1));
+            if (window.slot == slot) {
+                return;
+            }
+            this.unlink(window);
+            window.slot = slot;
+            window.next = this.wheel[slot];
+            if (window.next != null) {
+                window.next.previous = window;
+            }
+            this.wheel[slot] = window;
+        }
+    }
+
+    private void unlink(final FailureWindow window) {
+        if (window.slot < 0) {
+            return;
+        }
+        if (window.previous == null) {
+            this.wheel[window.slot] = window.next;
+        } else {
+            window.previous.next = window.next;
+        }
+        if (window.next != null) {
+            window.next.previous = window.previous;
+        }
+        window.previous = null;
+        window.next = null;
+        window.slot = -1;
+    }
+
+    @Override
+    public final void close() {
+        this.timer.shutdownNow();
+    }
+
+    /**
+     * Failures of a login, counted in buckets covering the sliding window, also node of the wheel linked lists.
+     */
+    private static final class FailureWindow {
+
+        private final String login;
+
+        private final int[] buckets;
+
+        private long head;
+
+        private int total;
+
+        private boolean banned;
+
+        private long bannedUntil;
+
+        private volatile boolean expired;
+
+        private volatile long deadlineTick;
+
+        private int slot = -1;
+
+        private FailureWindow previous;
+
+        private FailureWindow next;
+
+        private FailureWindow(final String login, final int buckets) {
+            this.login = login;
+            this.buckets = new int[buckets];
+        }
+
+        /**
+         * Move the window to the given bucket, dropping the outdated buckets, and count a failure in it.
+         *
+         * @param bucket Absolute bucket index of the current time.
+         */
+        private void slide(final long bucket) {
+            if (bucket - this.head >= this.buckets.length) {
+                this.clear();
+            } else {
+                for (long b = this.head + 1; b <= bucket; b++) {
+                    int index = (int) (b % this.buckets.length);
+                    this.total -= this.buckets[index];
+                    this.buckets[index] = 0;
+                }
+            }
+            this.head = Math.max(this.head, bucket);
+            this.buckets[(int) (this.head % this.buckets.length)]++;
+            this.total++;
+        }
+
+        private void clear() {
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = 0;
+            }
+            this.total = 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.model.PlayerId;
+
+/**
+ * Keep track of the players connection state.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface PresenceTracker {
+
+    /**
+     * Create a tracker ignoring the changes.
+     *
+     * @return The created tracker.
+     */
+    static PresenceTracker disabled() {
+        return new PresenceTracker() {
+            @Override
+            public void connected(PlayerId id) {
+                //Nothing to track.
+            }
+
+            @Override
+            public void disconnected(PlayerId id) {
+                //Nothing to track.
+            }
+        };
+    }
+
+    /**
+     * Notify a player successfully authenticated.
+     *
+     * @param id Player id.
+     */
+    void connected(PlayerId id);
+
+    /**
+     * Notify a player no longer connected.
+     *
+     * @param id Player id.
+     */
+    void disconnected(PlayerId id);
+}
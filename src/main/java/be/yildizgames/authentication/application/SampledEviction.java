@@ -0,0 +1,115 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.authentication.application;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Find an entry to evict from a concurrent map without ordering its entries: the least recently used one among a small sample.
+ * The sample starts at a random point of the map, found by splitting its spliterator, a concurrent hash map splits its table in halves,
+ * so reaching the sample costs a few splits whatever the size, and the evictions are spread over the whole table.
+ *
+ * @author Grégory Van den Borre
+ */
+final class SampledEviction {
+
+    /**
+     * Number of entries compared to find the one to evict.
+     */
+    static final int SAMPLE = 16;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private SampledEviction() {
+        super();
+    }
+
+    /**
+     * Find the least recently used entry among a sample starting at a random point of the map.
+     *
+     * @param map Map to sample.
+     * @param lastAccess Provide the last access time of a value.
+     * @param <K> Key type.
+     * @param <V> Value type.
+     * @return The entry to evict, null if the map is empty.
+     */
+    static <K, V> Map.Entry<K, V> leastRecentlyUsed(final Map<K, V> map, final ToLongFunction<V> lastAccess) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Spliterator<Map.Entry<K, V>> region = map.entrySet().spliterator();
+        while (region.estimateSize() > SAMPLE) {
+            Spliterator<Map.Entry<K, V>> prefix = region.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                region = prefix;
+            }
+        }
+        Oldest<K, V> oldest = new Oldest<>(lastAccess);
+        for (int i = 0; i < SAMPLE && region.tryAdvance(oldest); i++) {
+            //Compared in the action.
+        }
+        if (oldest.entry == null) {
+            //The region was empty, the start of the map is sampled instead.
+            region = map.entrySet().spliterator();
+            for (int i = 0; i < SAMPLE && region.tryAdvance(oldest); i++) {
+                //Compared in the action.
+            }
+        }
+        return oldest.entry;
+    }
+
+    /**
+     * Keep the least recently used entry seen.
+     */
+    private static final class Oldest<K, V> implements Consumer<Map.Entry<K, V>> {
+
+        private final ToLongFunction<V> lastAccess;
+
+        private Map.Entry<K, V> entry;
+
+        private long entryAccess;
+
+        private Oldest(final ToLongFunction<V> lastAccess) {
+            super();
+            this.lastAccess = lastAccess;
+        }
+
+        @Override
+        public void accept(final Map.Entry<K, V> candidate) {
+            long access = this.lastAccess.applyAsLong(candidate.getValue());
+            if (this.entry == null || access < this.entryAccess) {
+                this.entry = candidate;
+                this.entryAccess = access;
+            }
+        }
+    }
+}
@@ -26,13 +26,8 @@
 
 package be.yildizgames.authentication.application;
 
-import be.yildizgames.authentication.infrastructure.io.mail.EmailException;
 import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
-import be.yildizgames.common.util.StringUtil;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
@@ -65,26 +60,24 @@ class TemporaryAccountEmail implements EmailTemplate {
      * @param token Unique token to confirm the account.
      */
     TemporaryAccountEmail(final Path emailTemplate, final String login, final String email, final String token) {
+        this(CompiledEmailTemplate.load(emailTemplate), login, email, token);
+    }
+
+    /**
+     * Create a new instance.
+     * @param emailTemplate Compiled email template.
+     * @param login Email receiver name.
+     * @param email Receiver email address.
+     * @param token Unique token to confirm the account.
+     */
+    TemporaryAccountEmail(final CompiledEmailTemplate emailTemplate, final String login, final String email, final String token) {
         Objects.requireNonNull(emailTemplate);
         Objects.requireNonNull(login);
         Objects.requireNonNull(email);
         Objects.requireNonNull(token);
-        if(Files.notExists(emailTemplate)) {
-            throw new EmailException("Email template file " + emailTemplate.toString() +" cannot be found.");
-        }
         this.email = email;
-        try {
-            String content = Files.readString(emailTemplate, StandardCharsets.UTF_8);
-            String[] values = content.split("##");
-            if (values.length < 2) {
-                throw new EmailException("Invalid content, '##' expected between the title and the body");
-            }
-            this.title = values[0];
-            String[] params = {login, email, token};
-            this.body = StringUtil.fillVariable(values[1], params);
-        } catch (IOException e) {
-            throw new EmailException(e);
-        }
+        this.title = emailTemplate.getTitle();
+        this.body = emailTemplate.render(login, email, token);
     }
 
     @Override
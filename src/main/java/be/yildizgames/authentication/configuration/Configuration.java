@@ -24,8 +24,31 @@
 
 package be.yildizgames.authentication.configuration;
 
+import be.yildizgames.authentication.application.AuthenticationFailureProperties;
+import be.yildizgames.authentication.application.AuthenticationFailurePropertiesStandard;
+import be.yildizgames.authentication.application.CredentialCacheProperties;
+import be.yildizgames.authentication.application.CredentialCachePropertiesStandard;
+import be.yildizgames.authentication.application.SessionProperties;
+import be.yildizgames.authentication.application.SessionPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.AccountEventProperties;
+import be.yildizgames.authentication.infrastructure.AccountEventPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.ConsumerProperties;
+import be.yildizgames.authentication.infrastructure.ConsumerPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailAccount;
 import be.yildizgames.authentication.infrastructure.io.mail.EmailProperties;
 import be.yildizgames.authentication.infrastructure.io.mail.EmailPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.AccountCreationProperties;
+import be.yildizgames.authentication.infrastructure.persistence.AccountCreationPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.AccountFilterProperties;
+import be.yildizgames.authentication.infrastructure.persistence.AccountFilterPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.HashVerificationProperties;
+import be.yildizgames.authentication.infrastructure.persistence.HashVerificationPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.PresenceProperties;
+import be.yildizgames.authentication.infrastructure.persistence.PresencePropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountSweeperProperties;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountSweeperPropertiesStandard;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountWriterProperties;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountWriterPropertiesStandard;
 import be.yildizgames.common.authentication.AuthenticationConfiguration;
 import be.yildizgames.common.logging.LoggerConfiguration;
 import be.yildizgames.common.logging.LoggerPropertiesConfiguration;
@@ -35,6 +58,8 @@ import be.yildizgames.module.messaging.BrokerProperties;
 import be.yildizgames.module.messaging.BrokerPropertiesStandard;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 
@@ -48,7 +73,10 @@ import java.util.Properties;
  * If the file cannot be loaded of if the keys are not all available, an exception is thrown.
  * @author Grégory Van den Borre
  */
-public class Configuration implements DbProperties, AuthenticationConfiguration, BrokerProperties, EmailProperties {
+public class Configuration implements DbProperties, AuthenticationConfiguration, BrokerProperties, EmailProperties, SessionProperties, AuthenticationFailureProperties,
+        HashVerificationProperties, CredentialCacheProperties, AccountFilterProperties,
+        ConsumerProperties, AccountEventProperties, TemporaryAccountWriterProperties,
+        TemporaryAccountSweeperProperties, PresenceProperties, AccountCreationProperties {
 
     private final DbProperties dbProperties;
 
@@ -60,6 +88,28 @@ public class Configuration implements DbProperties, AuthenticationConfiguration,
 
     private final BrokerProperties brokerProperties;
 
+    private final SessionProperties sessionProperties;
+
+    private final AuthenticationFailureProperties failureProperties;
+
+    private final HashVerificationProperties hashVerificationProperties;
+
+    private final CredentialCacheProperties credentialCacheProperties;
+
+    private final AccountFilterProperties accountFilterProperties;
+
+    private final ConsumerProperties consumerProperties;
+
+    private final AccountEventProperties accountEventProperties;
+
+    private final TemporaryAccountWriterProperties temporaryAccountWriterProperties;
+
+    private final TemporaryAccountSweeperProperties temporaryAccountSweeperProperties;
+
+    private final PresenceProperties presenceProperties;
+
+    private final AccountCreationProperties accountCreationProperties;
+
     public Configuration(final Properties properties) {
         super();
         Objects.requireNonNull(properties);
@@ -68,6 +118,17 @@ public class Configuration implements DbProperties, AuthenticationConfiguration,
         this.brokerProperties = BrokerPropertiesStandard.fromProperties(properties);
         this.emailProperties = EmailPropertiesStandard.fromProperties(properties);
         this.loggerConfig = LoggerPropertiesConfiguration.fromProperties(properties);
+        this.sessionProperties = SessionPropertiesStandard.fromProperties(properties);
+        this.failureProperties = AuthenticationFailurePropertiesStandard.fromProperties(properties);
+        this.hashVerificationProperties = HashVerificationPropertiesStandard.fromProperties(properties);
+        this.credentialCacheProperties = CredentialCachePropertiesStandard.fromProperties(properties);
+        this.accountFilterProperties = AccountFilterPropertiesStandard.fromProperties(properties);
+        this.consumerProperties = ConsumerPropertiesStandard.fromProperties(properties);
+        this.accountEventProperties = AccountEventPropertiesStandard.fromProperties(properties);
+        this.temporaryAccountWriterProperties = TemporaryAccountWriterPropertiesStandard.fromProperties(properties);
+        this.temporaryAccountSweeperProperties = TemporaryAccountSweeperPropertiesStandard.fromProperties(properties);
+        this.presenceProperties = PresencePropertiesStandard.fromProperties(properties);
+        this.accountCreationProperties = AccountCreationPropertiesStandard.fromProperties(properties);
     }
 
     @Override
@@ -140,11 +201,176 @@ public class Configuration implements DbProperties, AuthenticationConfiguration,
         return this.emailProperties.getEmailPassword();
     }
 
+    @Override
+    public final List<EmailAccount> getEmailAccounts() {
+        return this.emailProperties.getEmailAccounts();
+    }
+
+    @Override
+    public final int getEmailRatePerMinute() {
+        return this.emailProperties.getEmailRatePerMinute();
+    }
+
+    @Override
+    public final int getEmailDispatcherThreads() {
+        return this.emailProperties.getEmailDispatcherThreads();
+    }
+
+    @Override
+    public final int getEmailQueueSize() {
+        return this.emailProperties.getEmailQueueSize();
+    }
+
     @Override
     public final Path getEmailTemplatePath(String language) {
         return this.emailProperties.getEmailTemplatePath(language);
     }
 
+    @Override
+    public final Duration getSessionIdleTimeout() {
+        return this.sessionProperties.getSessionIdleTimeout();
+    }
+
+    @Override
+    public final Duration getSessionLifetime() {
+        return this.sessionProperties.getSessionLifetime();
+    }
+
+    @Override
+    public final int getSessionMaximumSize() {
+        return this.sessionProperties.getSessionMaximumSize();
+    }
+
+    @Override
+    public final int getAuthenticationMaximumFailure() {
+        return this.failureProperties.getAuthenticationMaximumFailure();
+    }
+
+    @Override
+    public final Duration getAuthenticationFailureWindow() {
+        return this.failureProperties.getAuthenticationFailureWindow();
+    }
+
+    @Override
+    public final Duration getAuthenticationFailureBanTime() {
+        return this.failureProperties.getAuthenticationFailureBanTime();
+    }
+
+    @Override
+    public final int getHashVerificationThreads() {
+        return this.hashVerificationProperties.getHashVerificationThreads();
+    }
+
+    @Override
+    public final int getHashVerificationQueueSize() {
+        return this.hashVerificationProperties.getHashVerificationQueueSize();
+    }
+
+    @Override
+    public final Duration getCredentialCacheTimeToLive() {
+        return this.credentialCacheProperties.getCredentialCacheTimeToLive();
+    }
+
+    @Override
+    public final int getCredentialCacheMaximumSize() {
+        return this.credentialCacheProperties.getCredentialCacheMaximumSize();
+    }
+
+    @Override
+    public final int getAccountFilterExpectedSize() {
+        return this.accountFilterProperties.getAccountFilterExpectedSize();
+    }
+
+    @Override
+    public final double getAccountFilterFalsePositiveRate() {
+        return this.accountFilterProperties.getAccountFilterFalsePositiveRate();
+    }
+
+    @Override
+    public final int getAuthenticationConsumers() {
+        return this.consumerProperties.getAuthenticationConsumers();
+    }
+
+    @Override
+    public final int getAccountCreationConsumers() {
+        return this.consumerProperties.getAccountCreationConsumers();
+    }
+
+    @Override
+    public final int getAccountConfirmationConsumers() {
+        return this.consumerProperties.getAccountConfirmationConsumers();
+    }
+
+    @Override
+    public final int getAccountConfirmationBatchSize() {
+        return this.consumerProperties.getAccountConfirmationBatchSize();
+    }
+
+    @Override
+    public final boolean isVirtualThreadEnabled() {
+        return this.consumerProperties.isVirtualThreadEnabled();
+    }
+
+    @Override
+    public final int getVirtualThreadMaxInFlight() {
+        return this.consumerProperties.getVirtualThreadMaxInFlight();
+    }
+
+    @Override
+    public final int getDatabasePermits() {
+        return this.consumerProperties.getDatabasePermits();
+    }
+
+    @Override
+    public final int getAccountEventBatchSize() {
+        return this.accountEventProperties.getAccountEventBatchSize();
+    }
+
+    @Override
+    public final long getAccountEventBatchDelay() {
+        return this.accountEventProperties.getAccountEventBatchDelay();
+    }
+
+    @Override
+    public final int getTemporaryAccountBatchSize() {
+        return this.temporaryAccountWriterProperties.getTemporaryAccountBatchSize();
+    }
+
+    @Override
+    public final long getTemporaryAccountBatchDelay() {
+        return this.temporaryAccountWriterProperties.getTemporaryAccountBatchDelay();
+    }
+
+    @Override
+    public final int getTemporaryAccountRetention() {
+        return this.temporaryAccountSweeperProperties.getTemporaryAccountRetention();
+    }
+
+    @Override
+    public final int getTemporaryAccountSweepInterval() {
+        return this.temporaryAccountSweeperProperties.getTemporaryAccountSweepInterval();
+    }
+
+    @Override
+    public final int getTemporaryAccountSweepChunkSize() {
+        return this.temporaryAccountSweeperProperties.getTemporaryAccountSweepChunkSize();
+    }
+
+    @Override
+    public final long getPresenceFlushInterval() {
+        return this.presenceProperties.getPresenceFlushInterval();
+    }
+
+    @Override
+    public final int getAccountCreationHashPermits() {
+        return this.accountCreationProperties.getAccountCreationHashPermits();
+    }
+
+    @Override
+    public final int getAccountCreationDatabasePermits() {
+        return this.accountCreationProperties.getAccountCreationDatabasePermits();
+    }
+
     public final Properties getProperties() {
         return properties;
     }
@@ -44,10 +44,42 @@ public class DefaultConfigProperties extends Properties {
         this.setProperty("mail.login", "user");
         this.setProperty("mail.password", "user");
         this.setProperty("mail.template.path", "user");
+        this.setProperty("mail.dispatcher.threads", "2");
+        this.setProperty("mail.queue.size", "1000");
+        this.setProperty("mail.rate.per.minute", "60");
         this.setProperty("broker.host", "user");
         this.setProperty("broker.port", "1");
         this.setProperty("broker.data", ROOT + "/data/broker");
         this.setProperty("broker.internal", "true");
+        this.setProperty("session.idle.timeout", "1800");
+        this.setProperty("session.lifetime", "86400");
+        this.setProperty("session.maximum.size", "100000");
+        this.setProperty("authentication.failure.maximum", "5");
+        this.setProperty("authentication.failure.window", "300");
+        this.setProperty("authentication.failure.ban.time", "15");
+        this.setProperty("authentication.hash.threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        this.setProperty("authentication.hash.queue.size", "256");
+        this.setProperty("credential.cache.ttl", "600");
+        this.setProperty("credential.cache.maximum.size", "100000");
+        this.setProperty("account.filter.expected.size", "1000000");
+        this.setProperty("account.filter.false.positive.rate", "0.01");
+        this.setProperty("consumer.authentication.threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        this.setProperty("consumer.creation.threads", "2");
+        this.setProperty("consumer.confirmation.threads", "1");
+        this.setProperty("consumer.confirmation.batch.size", "100");
+        this.setProperty("consumer.virtual.threads", "false");
+        this.setProperty("consumer.virtual.max.inflight", "1024");
+        this.setProperty("consumer.database.permits", "16");
+        this.setProperty("account.event.batch.size", "1");
+        this.setProperty("account.event.batch.delay", "100");
+        this.setProperty("account.creation.batch.size", "64");
+        this.setProperty("account.creation.batch.delay", "5");
+        this.setProperty("account.creation.hash.permits", String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        this.setProperty("account.creation.database.permits", "4");
+        this.setProperty("account.temporary.retention", "72");
+        this.setProperty("account.temporary.sweep.interval", "60");
+        this.setProperty("account.temporary.sweep.chunk.size", "500");
+        this.setProperty("presence.flush.interval", "1000");
     }
 
     public static Properties create() {
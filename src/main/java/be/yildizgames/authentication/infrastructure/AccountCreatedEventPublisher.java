@@ -0,0 +1,276 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.module.messaging.AsyncMessageProducer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish the account created events as JSON messages.
+ * A single event is sent as {"schemaVersion":1,"type":"AccountCreated","timestamp":"2020-01-01T00:00:00Z","login":"login","id":1}.
+ * When batching is enabled, the events are sent as {"schemaVersion":1,"type":"AccountCreatedBatch","events":[{"timestamp":...,"login":...,"id":...}]},
+ * a batch is sent when full, or when its first event waited for the configured delay.
+ *
+ * @author Grégory Van den Borre
+ */
+public class AccountCreatedEventPublisher implements AutoCloseable {
+
+    /**
+     * Type of a message holding a single event.
+     */
+    static final String TYPE_EVENT = "AccountCreated";
+
+    /**
+     * Type of a message holding several events.
+     */
+    static final String TYPE_BATCH = "AccountCreatedBatch";
+
+    /**
+     * Thread safe factory creating the JSON generators.
+     */
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Buffer reused by every message encoded on a thread.
+     */
+    private static final ThreadLocal<StringWriter> BUFFER = ThreadLocal.withInitial(() -> new StringWriter(128));
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * To send the messages.
+     */
+    private final AsyncMessageProducer producer;
+
+    /**
+     * Maximum number of events in a message.
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum time an event waits for its batch to be sent, in milliseconds.
+     */
+    private final long batchDelay;
+
+    /**
+     * Events waiting to be sent, guarded by this.
+     */
+    private final List<AccountCreatedEvent> pending = new ArrayList<>();
+
+    /**
+     * Send the batches waiting for too long, null when batching is disabled.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Create a new publisher sending every event on its own.
+     *
+     * @param producer To send the messages.
+     */
+    public AccountCreatedEventPublisher(AsyncMessageProducer producer) {
+        this(producer, 1, 0);
+    }
+
+    /**
+     * Create a new publisher.
+     *
+     * @param producer To send the messages.
+     * @param properties Batch configuration.
+     */
+    public AccountCreatedEventPublisher(AsyncMessageProducer producer, AccountEventProperties properties) {
+        this(producer, properties.getAccountEventBatchSize(), properties.getAccountEventBatchDelay());
+    }
+
+    /**
+     * Create a new publisher.
+     *
+     * @param producer To send the messages.
+     * @param batchSize Maximum number of events in a message, 1 to disable batching.
+     * @param batchDelay Maximum time an event waits for its batch to be sent, in milliseconds.
+     */
+    AccountCreatedEventPublisher(AsyncMessageProducer producer, int batchSize, long batchDelay) {
+        super();
+        Objects.requireNonNull(producer);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.producer = producer;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+        this.scheduler = batchSize == 1 ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "account-event-batch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Publish an event, immediately or with the next batch.
+     *
+     * @param event Event to publish.
+     */
+    public final void publish(AccountCreatedEvent event) {
+        Objects.requireNonNull(event);
+        if (this.scheduler == null) {
+            this.send(encode(event));
+            return;
+        }
+        List<AccountCreatedEvent> batch = null;
+        synchronized (this) {
+            this.pending.add(event);
+            if (this.pending.size() >= this.batchSize) {
+                batch = this.drain();
+            } else if (this.pending.size() == 1) {
+                this.scheduler.schedule(this::flush, this.batchDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            this.send(encode(batch));
+        }
+    }
+
+    /**
+     * Publish several events at once, without waiting for the batch delay.
+     * When batching is disabled, every event is sent on its own, the consumers only get the batch format if they enabled it,
+     * otherwise the events are sent in messages of at most the batch size.
+     *
+     * @param events Events to publish.
+     */
+    public final void publishAll(List<AccountCreatedEvent> events) {
+        Objects.requireNonNull(events);
+        if (this.scheduler == null || events.size() == 1) {
+            events.forEach(this::publish);
+            return;
+        }
+        for (int from = 0; from < events.size(); from += this.batchSize) {
+            this.send(encode(events.subList(from, Math.min(from + this.batchSize, events.size()))));
+        }
+    }
+
+    /**
+     * Send the events waiting for their batch.
+     */
+    public final void flush() {
+        List<AccountCreatedEvent> batch;
+        synchronized (this) {
+            batch = this.drain();
+        }
+        if (!batch.isEmpty()) {
+            this.send(encode(batch));
+        }
+    }
+
+    private List<AccountCreatedEvent> drain() {
+        List<AccountCreatedEvent> batch = new ArrayList<>(this.pending);
+        this.pending.clear();
+        return batch;
+    }
+
+    private void send(String message) {
+        this.logger.debug("Send account created message: {0}", message);
+        synchronized (this.producer) {
+            this.producer.sendMessage(message);
+        }
+    }
+
+    /**
+     * Encode a single event.
+     *
+     * @param event Event to encode.
+     * @return The JSON message.
+     */
+    static String encode(AccountCreatedEvent event) {
+        StringWriter buffer = BUFFER.get();
+        buffer.getBuffer().setLength(0);
+        try (JsonGenerator json = JSON.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeNumberField("schemaVersion", AccountCreatedEvent.SCHEMA_VERSION);
+            json.writeStringField("type", TYPE_EVENT);
+            writeFields(json, event);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Encode several events in a single message.
+     *
+     * @param events Events to encode.
+     * @return The JSON message.
+     */
+    static String encode(List<AccountCreatedEvent> events) {
+        StringWriter buffer = BUFFER.get();
+        buffer.getBuffer().setLength(0);
+        try (JsonGenerator json = JSON.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeNumberField("schemaVersion", AccountCreatedEvent.SCHEMA_VERSION);
+            json.writeStringField("type", TYPE_BATCH);
+            json.writeArrayFieldStart("events");
+            for (AccountCreatedEvent event : events) {
+                json.writeStartObject();
+                writeFields(json, event);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    private static void writeFields(JsonGenerator json, AccountCreatedEvent event) throws IOException {
+        json.writeStringField("timestamp", event.timestamp.toString());
+        json.writeStringField("login", event.login);
+        json.writeNumberField("id", event.accountId);
+    }
+
+    @Override
+    public final void close() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            this.flush();
+        }
+    }
+}
@@ -27,9 +27,11 @@
 package be.yildizgames.authentication.infrastructure;
 
 import be.yildizgames.authentication.application.AccountCreationManager;
+import be.yildizgames.authentication.application.AuthenticationBusyException;
 import be.yildizgames.authentication.application.AuthenticationManager;
 import be.yildizgames.common.authentication.Credentials;
 import be.yildizgames.common.authentication.Token;
+import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
 import be.yildizgames.common.authentication.protocol.Queues;
 import be.yildizgames.common.authentication.protocol.TemporaryAccountCreationResultDto;
 import be.yildizgames.common.authentication.protocol.mapper.AccountConfirmationMapper;
@@ -43,17 +45,141 @@ import be.yildizgames.module.messaging.BrokerMessageDestination;
 import be.yildizgames.module.messaging.BrokerMessageHeader;
 import be.yildizgames.module.messaging.BrokerMessageProducer;
 
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
 /**
+ * Listen to the request queues and process the messages.
+ * Every queue has its own threads, a burst of requests on a queue cannot delay the processing of the others.
+ * The messages are dispatched on the threads by login: the requests for a same login are processed one after the other, in reception order,
+ * the requests for different logins are processed in parallel.
+ * When the backlog of a thread is full, the consumer waits, slowing down the reception.
+ * The threads can be virtual, one new thread per message, the messages of a same login being chained one after the other,
+ * the number of authentications and confirmations using the database at the same time is then bounded by a semaphore,
+ * the password verifications stay bounded by the hash verification pool.
+ * The account creations have their own hashing and database budget, a burst of registrations cannot delay the authentications.
+ * The account confirmations are processed in micro batches, always on platform threads, as their batching makes more threads useless.
+ *
  * @author Grégory Van den Borre
  */
-public class AsynchronousAuthenticationServer {
+public class AsynchronousAuthenticationServer implements AutoCloseable {
 
     /**
      * Logger.
      */
     private final Logger logger = Logger.getLogger(this);
 
+    /**
+     * Number of messages waiting for a thread, per thread.
+     */
+    private static final int BACKLOG_PER_THREAD = 64;
+
+    /**
+     * Threads processing the authentication requests.
+     */
+    private final KeyedTaskExecutor authenticationExecutor;
+
+    /**
+     * Threads processing the account creation requests.
+     */
+    private final KeyedTaskExecutor accountCreationExecutor;
+
+    /**
+     * Threads processing the account confirmation requests, in micro batches.
+     */
+    private final MicroBatcher<AccountConfirmationDto> accountConfirmationBatcher;
+
+    /**
+     * Limit the number of messages using the database at the same time, whatever the number of threads.
+     */
+    private final Semaphore databasePermits;
+
+    /**
+     * Create a new server with one thread per core for the authentications, and one thread for the account creations and confirmations.
+     *
+     * @param broker Broker to receive and send the messages.
+     * @param accountCreationManager To create the accounts.
+     * @param authenticationManager To authenticate the players.
+     */
     public AsynchronousAuthenticationServer(Broker broker, AccountCreationManager accountCreationManager, AuthenticationManager authenticationManager) {
+        this(broker, accountCreationManager, authenticationManager, new ConsumerProperties() {
+            @Override
+            public int getAuthenticationConsumers() {
+                return Runtime.getRuntime().availableProcessors();
+            }
+
+            @Override
+            public int getAccountCreationConsumers() {
+                return 1;
+            }
+
+            @Override
+            public int getAccountConfirmationConsumers() {
+                return 1;
+            }
+
+            @Override
+            public int getAccountConfirmationBatchSize() {
+                return 100;
+            }
+
+            @Override
+            public boolean isVirtualThreadEnabled() {
+                return false;
+            }
+
+            @Override
+            public int getVirtualThreadMaxInFlight() {
+                return 1024;
+            }
+
+            @Override
+            public int getDatabasePermits() {
+                return Runtime.getRuntime().availableProcessors() + 2;
+            }
+        });
+    }
+
+    /**
+     * Create a new server.
+     *
+     * @param broker Broker to receive and send the messages.
+     * @param accountCreationManager To create the accounts.
+     * @param authenticationManager To authenticate the players.
+     * @param consumerProperties Threads and permits for every queue.
+     */
+    public AsynchronousAuthenticationServer(Broker broker, AccountCreationManager accountCreationManager, AuthenticationManager authenticationManager, ConsumerProperties consumerProperties) {
+        super();
+        this.databasePermits = new Semaphore(consumerProperties.getDatabasePermits(), true);
+        Optional<ThreadFactory> virtualThreads = consumerProperties.isVirtualThreadEnabled()
+                ? VirtualThreads.factory("consumer")
+                : Optional.empty();
+        if (virtualThreads.isPresent()) {
+            int maxInFlight = consumerProperties.getVirtualThreadMaxInFlight();
+            this.logger.info("Processing the messages on virtual threads, one per message, {0} messages in flight per queue.", maxInFlight);
+            this.authenticationExecutor = new VirtualKeyedExecutor(virtualThreads.get(), maxInFlight);
+            this.accountCreationExecutor = new VirtualKeyedExecutor(virtualThreads.get(), maxInFlight);
+        } else {
+            if (consumerProperties.isVirtualThreadEnabled()) {
+                this.logger.warning("Virtual threads are not supported by this JVM, processing the messages on platform threads.");
+            }
+            this.authenticationExecutor = new KeyedExecutor("authentication-consumer", consumerProperties.getAuthenticationConsumers(), BACKLOG_PER_THREAD);
+            this.accountCreationExecutor = new KeyedExecutor("account-creation-consumer", consumerProperties.getAccountCreationConsumers(), BACKLOG_PER_THREAD);
+        }
+        this.accountConfirmationBatcher = new MicroBatcher<>(
+                "account-confirmation-consumer",
+                consumerProperties.getAccountConfirmationConsumers(),
+                consumerProperties.getAccountConfirmationBatchSize(),
+                BACKLOG_PER_THREAD * consumerProperties.getAccountConfirmationBatchSize(),
+                confirmations -> this.withDatabasePermit(() -> {
+                    try {
+                        accountCreationManager.confirmAccounts(confirmations);
+                    } catch (IllegalStateException e) {
+                        this.logException(Queues.CREATE_ACCOUNT_CONFIRMATION_REQUEST, e);
+                    }
+                }));
         BrokerMessageDestination temporaryAccountCreatedQueue = broker.registerQueue(Queues.ACCOUNT_CREATION_TEMP.getName());
         BrokerMessageDestination accountCreationRequestQueue = broker.registerQueue(Queues.CREATE_ACCOUNT_REQUEST.getName());
         BrokerMessageDestination authenticationRequestQueue = broker.registerQueue(Queues.AUTHENTICATION_REQUEST.getName());
@@ -66,8 +192,16 @@ public class AsynchronousAuthenticationServer {
         accountCreationRequestQueue.createConsumer(message -> {
             this.logMessage(Queues.CREATE_ACCOUNT_REQUEST, message);
             try {
-                TemporaryAccountCreationResultDto result = accountCreationManager.create(this.from(message.getText()));
-                tempProducer.sendMessage(TemporaryAccountResultMapper.getInstance().to(result), BrokerMessageHeader.correlationId(message.getCorrelationId()));
+                TemporaryAccountDto dto = TemporaryAccountDtoCodec.getInstance().from(message.getText());
+                //No shared database permit, the creation bounds its own hashing and database accesses, not to delay the authentications.
+                this.accountCreationExecutor.execute(dto.login, () -> {
+                    try {
+                        TemporaryAccountCreationResultDto result = accountCreationManager.create(dto);
+                        this.sendResponse(tempProducer, TemporaryAccountResultMapper.getInstance().to(result), message);
+                    } catch (IllegalStateException e) {
+                        this.logException(Queues.CREATE_ACCOUNT_REQUEST, e);
+                    }
+                });
             } catch (IllegalStateException e) {
                 this.logException(Queues.CREATE_ACCOUNT_REQUEST, e);
             }
@@ -76,7 +210,8 @@ public class AsynchronousAuthenticationServer {
         accountCreationConfirmationRequestQueue.createConsumer(message -> {
             this.logMessage(Queues.CREATE_ACCOUNT_CONFIRMATION_REQUEST, message);
             try {
-                accountCreationManager.confirmAccount(AccountConfirmationMapper.getInstance().from(message.getText()));
+                AccountConfirmationDto confirmation = AccountConfirmationMapper.getInstance().from(message.getText());
+                this.accountConfirmationBatcher.submit(confirmation.getLogin(), confirmation);
             } catch (IllegalStateException e) {
                 this.logException(Queues.CREATE_ACCOUNT_CONFIRMATION_REQUEST, e);
             }
@@ -86,15 +221,77 @@ public class AsynchronousAuthenticationServer {
             this.logMessage(Queues.AUTHENTICATION_REQUEST, message);
             try {
                 Credentials r = CredentialsMapper.getInstance().from(message.getText());
-                Token token = authenticationManager.authenticate(r);
-                this.logger.debug("Send authentication response message to {0} : {1}", token.getId(), token.getStatus());
-                authenticationResponseProducer.sendMessage(TokenMapper.getInstance().to(token), BrokerMessageHeader.correlationId(message.getCorrelationId()));
+                this.authenticationExecutor.execute(r.login, () -> this.withDatabasePermit(() -> {
+                    try {
+                        authenticationManager.authenticateAsync(r).whenComplete((token, error) -> {
+                            if (error == null) {
+                                this.logger.debug("Send authentication response message to {0} : {1}", token.getId(), token.getStatus());
+                                this.sendResponse(authenticationResponseProducer, TokenMapper.getInstance().to(token), message);
+                            } else {
+                                this.handleAuthenticationError(authenticationResponseProducer, message, error);
+                            }
+                        });
+                    } catch (IllegalStateException e) {
+                        this.logException(Queues.AUTHENTICATION_REQUEST, e);
+                    }
+                }));
             } catch (IllegalStateException e) {
                 this.logException(Queues.AUTHENTICATION_REQUEST, e);
             }
         });
     }
 
+    /**
+     * Run a task holding a database permit, the authentication only holds it while reading the account,
+     * the password verification is completed on the hash verification pool.
+     *
+     * @param task Task to run.
+     */
+    private void withDatabasePermit(Runnable task) {
+        this.databasePermits.acquireUninterruptibly();
+        try {
+            task.run();
+        } finally {
+            this.databasePermits.release();
+        }
+    }
+
+    /**
+     * Stop the consumer threads, once the messages already received are processed.
+     */
+    @Override
+    public final void close() {
+        this.authenticationExecutor.close();
+        this.accountCreationExecutor.close();
+        this.accountConfirmationBatcher.close();
+    }
+
+    /**
+     * Send a response, the producers are shared by the threads of a queue.
+     *
+     * @param producer Producer to use.
+     * @param response Response content.
+     * @param request Request to respond to.
+     */
+    private void sendResponse(BrokerMessageProducer producer, String response, BrokerMessage request) {
+        synchronized (producer) {
+            producer.sendMessage(response, BrokerMessageHeader.correlationId(request.getCorrelationId()));
+        }
+    }
+
+    private void handleAuthenticationError(BrokerMessageProducer producer, BrokerMessage request, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof AuthenticationBusyException) {
+            this.logger.warning("Authentication rejected, server busy: {0}", cause.getMessage());
+            //The protocol has no busy status, the client gets a failed authentication, not counted as a failure, and can retry.
+            this.sendResponse(producer, TokenMapper.getInstance().to(Token.authenticationFailed()), request);
+        } else if (cause instanceof IllegalStateException) {
+            this.logException(Queues.AUTHENTICATION_REQUEST, (IllegalStateException) cause);
+        } else {
+            this.logger.error("Unexpected error in {0}", Queues.AUTHENTICATION_REQUEST.getName(), cause);
+        }
+    }
+
     private void logMessage(Queues queue, BrokerMessage message) {
         this.logger.debug("message received in {0}: {1}", queue.getName(), message.getText());
     }
@@ -103,13 +300,4 @@ public class AsynchronousAuthenticationServer {
         this.logger.warning("Unexpected message in {0}", queue.getName(), e);
     }
 
-    private TemporaryAccountDto from(String s) {
-        try {
-            String[] v = s.split("@@");
-            return new TemporaryAccountDto(v[0], v[1], v[2], v[3]);
-        } catch (IndexOutOfBoundsException var3) {
-            throw new IllegalArgumentException(var3);
-        }
-    }
-
 }
@@ -0,0 +1,70 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+/**
+ * Configuration of the number of threads processing the messages of every queue.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface ConsumerProperties {
+
+    /**
+     * @return The number of threads processing the authentication requests.
+     */
+    int getAuthenticationConsumers();
+
+    /**
+     * @return The number of threads processing the account creation requests.
+     */
+    int getAccountCreationConsumers();
+
+    /**
+     * @return The number of threads processing the account confirmation requests.
+     */
+    int getAccountConfirmationConsumers();
+
+    /**
+     * @return The maximum number of account confirmations processed at once.
+     */
+    int getAccountConfirmationBatchSize();
+
+    /**
+     * @return True to process every queue on virtual threads, if the JVM supports them, false to use the platform threads.
+     */
+    boolean isVirtualThreadEnabled();
+
+    /**
+     * @return The maximum number of messages of every queue received and not yet processed when running on virtual threads, one thread per message.
+     */
+    int getVirtualThreadMaxInFlight();
+
+    /**
+     * @return The maximum number of messages using the database at the same time.
+     */
+    int getDatabasePermits();
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import be.yildizgames.common.properties.PropertiesHelper;
+
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Consumer properties read from a property file.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ConsumerPropertiesStandard implements ConsumerProperties {
+
+    private final int authenticationConsumers;
+
+    private final int accountCreationConsumers;
+
+    private final int accountConfirmationConsumers;
+
+    private final int accountConfirmationBatchSize;
+
+    private final boolean virtualThreadEnabled;
+
+    private final int virtualThreadMaxInFlight;
+
+    private final int databasePermits;
+
+    private ConsumerPropertiesStandard(final Properties properties) {
+        super();
+        Objects.requireNonNull(properties);
+        this.authenticationConsumers = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.authentication.threads"));
+        this.accountCreationConsumers = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.creation.threads"));
+        this.accountConfirmationConsumers = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.confirmation.threads"));
+        this.accountConfirmationBatchSize = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.confirmation.batch.size"));
+        this.virtualThreadEnabled = Boolean.parseBoolean(PropertiesHelper.getValue(properties, "consumer.virtual.threads"));
+        this.virtualThreadMaxInFlight = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.virtual.max.inflight"));
+        this.databasePermits = Integer.parseInt(PropertiesHelper.getValue(properties, "consumer.database.permits"));
+    }
+
+    public static ConsumerProperties fromProperties(Properties properties) {
+        return new ConsumerPropertiesStandard(properties);
+    }
+
+    @Override
+    public final int getAuthenticationConsumers() {
+        return this.authenticationConsumers;
+    }
+
+    @Override
+    public final int getAccountCreationConsumers() {
+        return this.accountCreationConsumers;
+    }
+
+    @Override
+    public final int getAccountConfirmationConsumers() {
+        return this.accountConfirmationConsumers;
+    }
+
+    @Override
+    public final int getAccountConfirmationBatchSize() {
+        return this.accountConfirmationBatchSize;
+    }
+
+    @Override
+    public final boolean isVirtualThreadEnabled() {
+        return this.virtualThreadEnabled;
+    }
+
+    @Override
+    public final int getVirtualThreadMaxInFlight() {
+        return this.virtualThreadMaxInFlight;
+    }
+
+    @Override
+    public final int getDatabasePermits() {
+        return this.databasePermits;
+    }
+}
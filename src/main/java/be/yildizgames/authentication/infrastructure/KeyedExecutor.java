@@ -0,0 +1,164 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor running the tasks on a fixed number of single threaded lanes, the lane is chosen from a key.
+ * Tasks submitted with the same key are run one after the other in submission order, tasks with different keys can run in parallel.
+ * When the backlog of a lane is full, the submitting thread waits for a free slot, to keep the order of the tasks.
+ *
+ * @author Grégory Van den Borre
+ */
+class KeyedExecutor implements KeyedTaskExecutor {
+
+    /**
+     * Maximum time to wait for the submitted tasks on close, in seconds.
+     */
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Single threaded executors, one per lane.
+     */
+    private final ExecutorService[] lanes;
+
+    /**
+     * Create a new executor running on daemon platform threads.
+     *
+     * @param name Thread name prefix.
+     * @param lanes Number of lanes, thus of threads.
+     * @param backlog Number of tasks a lane can hold before blocking the submitting thread.
+     */
+    KeyedExecutor(String name, int lanes, int backlog) {
+        this(platformThreads(name), lanes, backlog);
+    }
+
+    /**
+     * Create a new executor.
+     *
+     * @param threadFactory Factory building the thread of every lane.
+     * @param lanes Number of lanes, thus of threads.
+     * @param backlog Number of tasks a lane can hold before blocking the submitting thread.
+     */
+    KeyedExecutor(ThreadFactory threadFactory, int lanes, int backlog) {
+        super();
+        Objects.requireNonNull(threadFactory);
+        if (lanes < 1 || backlog < 1) {
+            throw new IllegalArgumentException("Lanes and backlog must be positive.");
+        }
+        this.lanes = new ExecutorService[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(backlog), threadFactory, KeyedExecutor::waitForSlot);
+        }
+    }
+
+    /**
+     * Create a factory building daemon platform threads.
+     *
+     * @param name Thread name prefix, followed by a counter.
+     * @return The created factory.
+     */
+    private static ThreadFactory platformThreads(String name) {
+        Objects.requireNonNull(name);
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Run a task on the lane of its key.
+     *
+     * @param key Key choosing the lane, tasks with equal keys are never run concurrently.
+     * @param task Task to run.
+     */
+    @Override
+    public final void execute(String key, Runnable task) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(task);
+        this.lanes[lane(key, this.lanes.length)].execute(task);
+    }
+
+    /**
+     * Compute the lane of a key.
+     *
+     * @param key Key to compute.
+     * @param lanes Number of lanes.
+     * @return The lane index.
+     */
+    static int lane(String key, int lanes) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return Math.floorMod(h, lanes);
+    }
+
+    /**
+     * Block the submitting thread until the lane accepts the task.
+     *
+     * @param task Task rejected because the lane backlog is full.
+     * @param executor Lane executor.
+     */
+    private static void waitForSlot(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down.");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
+    /**
+     * Stop accepting tasks and wait for the submitted ones to be run.
+     */
+    @Override
+    public final void close() {
+        for (ExecutorService lane : this.lanes) {
+            lane.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT);
+        try {
+            for (ExecutorService lane : this.lanes) {
+                lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
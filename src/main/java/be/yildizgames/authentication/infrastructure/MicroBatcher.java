@@ -0,0 +1,174 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import be.yildizgames.common.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Process the submitted items in micro batches, on a fixed number of lanes chosen from a key.
+ * Every lane thread waits for an item, then takes all the items already waiting, up to the batch size, and processes them at once.
+ * No time is spent waiting for a batch to be full: under a low load the batches hold a single item, under a high load they grow to the batch size.
+ * Items submitted with the same key are processed in submission order, when the backlog of a lane is full, the submitting thread waits.
+ *
+ * @param <T> Type of the items.
+ * @author Grégory Van den Borre
+ */
+class MicroBatcher<T> implements AutoCloseable {
+
+    /**
+     * Maximum time to wait for the waiting items on close, in seconds.
+     */
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Time a lane waits for an item before checking if it is closed, in milliseconds.
+     */
+    private static final long IDLE_POLL = 100;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * Items waiting in every lane.
+     */
+    private final List<BlockingQueue<T>> lanes;
+
+    /**
+     * Thread of every lane.
+     */
+    private final List<Thread> threads;
+
+    /**
+     * Maximum number of items processed at once.
+     */
+    private final int batchSize;
+
+    /**
+     * Process a batch of items.
+     */
+    private final Consumer<List<T>> handler;
+
+    /**
+     * False once closed, the waiting items are still processed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Create a new batcher, its lanes run on daemon threads.
+     *
+     * @param name Thread name prefix.
+     * @param lanes Number of lanes, thus of threads.
+     * @param batchSize Maximum number of items processed at once.
+     * @param backlog Number of items a lane can hold before blocking the submitting thread.
+     * @param handler Process a batch of items, the list is only valid during the call.
+     */
+    MicroBatcher(String name, int lanes, int batchSize, int backlog, Consumer<List<T>> handler) {
+        super();
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(handler);
+        if (lanes < 1 || batchSize < 1 || backlog < 1) {
+            throw new IllegalArgumentException("Lanes, batch size and backlog must be positive.");
+        }
+        this.batchSize = batchSize;
+        this.handler = handler;
+        this.lanes = new ArrayList<>(lanes);
+        this.threads = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            BlockingQueue<T> queue = new ArrayBlockingQueue<>(backlog);
+            this.lanes.add(queue);
+            Thread thread = new Thread(() -> this.run(queue), name + "-" + i);
+            thread.setDaemon(true);
+            this.threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Submit an item to the lane of its key.
+     *
+     * @param key Key choosing the lane.
+     * @param item Item to process.
+     */
+    final void submit(String key, T item) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(item);
+        try {
+            this.lanes.get(KeyedExecutor.lane(key, this.lanes.size())).put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void run(BlockingQueue<T> queue) {
+        List<T> batch = new ArrayList<>(this.batchSize);
+        while (this.running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(IDLE_POLL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, this.batchSize - 1);
+                this.handler.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                this.logger.error("Error while processing a batch of {0} items", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Stop the lanes and wait for their waiting items to be processed.
+     */
+    @Override
+    public final void close() {
+        this.running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT);
+        try {
+            for (Thread thread : this.threads) {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import java.util.Objects;
+
+/**
+ * Encode and decode the account creation requests.
+ * The text format starts with the U+0001 marker and the version, followed by every field as its length, a colon, and its value,
+ * as 5:login8:password12:me@email.com2:en.
+ * Any value is accepted, including the separators of the legacy format, that is still decoded when the marker is absent.
+ *
+ * @author Grégory Van den Borre
+ */
+public class TemporaryAccountDtoCodec {
+
+    /**
+     * First character of a versioned text message, it is never part of a legacy message, that only contains printable values.
+     */
+    static final char MARKER = '\u0001';
+
+    /**
+     * Current format version.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Field separator of the legacy format.
+     */
+    private static final String LEGACY_SEPARATOR = "@@";
+
+    private static final TemporaryAccountDtoCodec INSTANCE = new TemporaryAccountDtoCodec();
+
+    private TemporaryAccountDtoCodec() {
+        super();
+    }
+
+    public static TemporaryAccountDtoCodec getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Encode a request in the versioned text format.
+     *
+     * @param dto Request to encode.
+     * @return The encoded request.
+     */
+    public final String to(TemporaryAccountDto dto) {
+        Objects.requireNonNull(dto);
+        StringBuilder sb = new StringBuilder(16 + dto.login.length() + dto.password.length() + dto.email.length() + dto.language.length());
+        sb.append(MARKER).append(VERSION);
+        appendField(sb, dto.login);
+        appendField(sb, dto.password);
+        appendField(sb, dto.email);
+        appendField(sb, dto.language);
+        return sb.toString();
+    }
+
+    /**
+     * Decode a text request, in the versioned or legacy format.
+     *
+     * @param message Message to decode.
+     * @return The decoded request.
+     * @throws IllegalArgumentException If the message is not valid.
+     */
+    public final TemporaryAccountDto from(String message) {
+        Objects.requireNonNull(message);
+        if (message.isEmpty() || message.charAt(0) != MARKER) {
+            return this.fromLegacy(message);
+        }
+        if (message.length() < 2 || message.charAt(1) != '0' + VERSION) {
+            throw new IllegalArgumentException("Unsupported account creation message version.");
+        }
+        TextReader reader = new TextReader(message, 2);
+        TemporaryAccountDto dto = new TemporaryAccountDto(reader.next(), reader.next(), reader.next(), reader.next());
+        if (reader.position != message.length()) {
+            throw new IllegalArgumentException("Unexpected content after the account creation message.");
+        }
+        return dto;
+    }
+
+    /**
+     * Decode the legacy format, the four fields separated by @@, any following content is ignored.
+     *
+     * @param message Message to decode.
+     * @return The decoded request.
+     */
+    private TemporaryAccountDto fromLegacy(String message) {
+        int loginEnd = legacyEnd(message, 0);
+        int passwordEnd = legacyEnd(message, loginEnd + LEGACY_SEPARATOR.length());
+        int emailEnd = legacyEnd(message, passwordEnd + LEGACY_SEPARATOR.length());
+        int languageStart = emailEnd + LEGACY_SEPARATOR.length();
+        int languageEnd = message.indexOf(LEGACY_SEPARATOR, languageStart);
+        return new TemporaryAccountDto(
+                message.substring(0, loginEnd),
+                message.substring(loginEnd + LEGACY_SEPARATOR.length(), passwordEnd),
+                message.substring(passwordEnd + LEGACY_SEPARATOR.length(), emailEnd),
+                message.substring(languageStart, languageEnd == -1 ? message.length() : languageEnd));
+    }
+
+    private static int legacyEnd(String message, int start) {
+        int end = message.indexOf(LEGACY_SEPARATOR, start);
+        if (end == -1) {
+            throw new IllegalArgumentException("Missing field in the account creation message.");
+        }
+        return end;
+    }
+
+    private static void appendField(StringBuilder sb, String value) {
+        sb.append(value.length()).append(':').append(value);
+    }
+
+    /**
+     * Read the length prefixed fields of a text message.
+     */
+    private static final class TextReader {
+
+        private final String message;
+
+        private int position;
+
+        private TextReader(String message, int position) {
+            super();
+            this.message = message;
+            this.position = position;
+        }
+
+        private String next() {
+            int length = 0;
+            int i = this.position;
+            while (i < this.message.length() && this.message.charAt(i) != ':') {
+                char c = this.message.charAt(i);
+                if (c < '0' || c > '9' || length > (Integer.MAX_VALUE - 9) / 10) {
+                    throw new IllegalArgumentException("Invalid field length in the account creation message.");
+                }
+                length = length * 10 + c - '0';
+                i++;
+            }
+            if (i == this.position || i == this.message.length() || length > this.message.length() - i - 1) {
+                throw new IllegalArgumentException("Truncated account creation message.");
+            }
+            int start = i + 1;
+            this.position = start + length;
+            return this.message.substring(start, this.position);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import be.yildizgames.common.logging.Logger;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor running every task on its own new thread, meant for virtual threads, cheap enough to create one per message.
+ * The tasks of a key are chained on the completion of the previous one: they are run one after the other in submission order,
+ * tasks with different keys run in parallel, without any lane shared between keys.
+ * The number of submitted tasks not yet completed is bounded, when it is reached, the submitting thread waits for a task to complete.
+ *
+ * @author Grégory Van den Borre
+ */
+class VirtualKeyedExecutor implements KeyedTaskExecutor {
+
+    /**
+     * Maximum time to wait for the submitted tasks on close, in seconds.
+     */
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(VirtualKeyedExecutor.class);
+
+    /**
+     * Last task submitted for every key, removed once completed.
+     */
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Start every task on a new thread.
+     */
+    private final Executor threadPerTask;
+
+    /**
+     * Maximum number of submitted tasks not yet completed.
+     */
+    private final int maxInFlight;
+
+    /**
+     * One permit per submitted task not yet completed.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * True once closed, no task is accepted anymore.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new executor.
+     *
+     * @param threadFactory Factory building the thread of every task.
+     * @param maxInFlight Number of submitted tasks not yet completed before blocking the submitting thread.
+     */
+    VirtualKeyedExecutor(ThreadFactory threadFactory, int maxInFlight) {
+        super();
+        Objects.requireNonNull(threadFactory);
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum in flight tasks must be positive.");
+        }
+        this.threadPerTask = r -> threadFactory.newThread(r).start();
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public final void execute(String key, Runnable task) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(task);
+        if (this.closed) {
+            throw new RejectedExecutionException("Executor is shut down.");
+        }
+        try {
+            this.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                //Never complete the chain exceptionally, the next tasks of the key must still be run.
+                LOGGER.error(e);
+            } finally {
+                this.inFlight.release();
+            }
+        };
+        CompletableFuture<Void> next = this.tails.compute(key, (k, previous) -> previous == null
+                ? CompletableFuture.runAsync(guarded, this.threadPerTask)
+                : previous.thenRunAsync(guarded, this.threadPerTask));
+        next.whenComplete((v, e) -> this.tails.remove(key, next));
+    }
+
+    /**
+     * Stop accepting tasks and wait for the submitted ones to be run.
+     */
+    @Override
+    public final void close() {
+        this.closed = true;
+        try {
+            if (this.inFlight.tryAcquire(this.maxInFlight, CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                this.inFlight.release(this.maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -23,6 +23,7 @@
  */
 package be.yildizgames.authentication.infrastructure.io.mail;
 
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -34,5 +35,25 @@ public interface EmailProperties extends EmailTemplateConfiguration {
 
     String getEmailPassword();
 
+    /**
+     * @return The accounts used to send the emails, the first one is the one from getEmailLogin and getEmailPassword.
+     */
+    List<EmailAccount> getEmailAccounts();
+
+    /**
+     * @return The maximum number of emails sent per minute with each account.
+     */
+    int getEmailRatePerMinute();
+
+    /**
+     * @return The number of threads sending the emails, each one keeping its own connection to the mail server.
+     */
+    int getEmailDispatcherThreads();
+
+    /**
+     * @return The maximum number of emails waiting to be sent.
+     */
+    int getEmailQueueSize();
+
     Properties getProperties();
 }
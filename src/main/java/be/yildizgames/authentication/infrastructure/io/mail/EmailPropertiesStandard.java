@@ -29,6 +29,9 @@ import be.yildizgames.common.properties.PropertiesHelper;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 
@@ -45,6 +48,14 @@ public class EmailPropertiesStandard implements EmailProperties {
 
     private final Properties properties;
 
+    private final int dispatcherThreads;
+
+    private final int queueSize;
+
+    private final List<EmailAccount> accounts;
+
+    private final int ratePerMinute;
+
     private EmailPropertiesStandard(final Properties properties) {
         super();
         Objects.requireNonNull(properties);
@@ -52,6 +63,15 @@ public class EmailPropertiesStandard implements EmailProperties {
         this.login = PropertiesHelper.getValue(properties, "mail.login");
         this.password = PropertiesHelper.getValue(properties, "mail.password");
         this.templatePath = PropertiesHelper.getValue(properties, "mail.template.path");
+        this.dispatcherThreads = Integer.parseInt(PropertiesHelper.getValue(properties, "mail.dispatcher.threads"));
+        this.queueSize = Integer.parseInt(PropertiesHelper.getValue(properties, "mail.queue.size"));
+        this.ratePerMinute = Integer.parseInt(PropertiesHelper.getValue(properties, "mail.rate.per.minute"));
+        List<EmailAccount> list = new ArrayList<>();
+        list.add(new EmailAccount(this.login, this.password));
+        for (int i = 2; properties.containsKey("mail.login." + i); i++) {
+            list.add(new EmailAccount(PropertiesHelper.getValue(properties, "mail.login." + i), PropertiesHelper.getValue(properties, "mail.password." + i)));
+        }
+        this.accounts = Collections.unmodifiableList(list);
     }
 
     public static EmailProperties fromProperties(Properties properties) {
@@ -68,6 +88,26 @@ public class EmailPropertiesStandard implements EmailProperties {
         return this.password;
     }
 
+    @Override
+    public final List<EmailAccount> getEmailAccounts() {
+        return this.accounts;
+    }
+
+    @Override
+    public final int getEmailRatePerMinute() {
+        return this.ratePerMinute;
+    }
+
+    @Override
+    public final int getEmailDispatcherThreads() {
+        return this.dispatcherThreads;
+    }
+
+    @Override
+    public final int getEmailQueueSize() {
+        return this.queueSize;
+    }
+
     @Override
     public final Properties getProperties() {
         return this.properties;
@@ -26,6 +26,8 @@
 
 package be.yildizgames.authentication.infrastructure.io.mail;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Grégory Van den Borre
  */
@@ -33,4 +35,19 @@ package be.yildizgames.authentication.infrastructure.io.mail;
 public interface EmailService {
 
     void send(EmailTemplate template);
+
+    /**
+     * Send an email without waiting for the mail server.
+     * The default implementation sends it on the caller thread.
+     * @param template Email to send.
+     * @return The future completed once the email is sent, or completed exceptionally if it could not be sent.
+     */
+    default CompletableFuture<Void> sendAsync(EmailTemplate template) {
+        try {
+            this.send(template);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,481 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.io.mail;
+
+import be.yildizgames.common.logging.Logger;
+
+import javax.mail.Authenticator;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Email service sending the emails from background threads, with sendAsync the caller only waits for the message to be queued.
+ * Several sender accounts can be configured, they are used in turn, each one limited to a number of emails per minute by a token bucket.
+ * When every account reached its limit, the emails wait in the queue until a token is available instead of being sent and throttled by the server.
+ * Every thread keeps its own SMTP connection open for each account and sends the queued messages in batches, reconnecting when the server closed it.
+ * The queue is bounded, when full, the caller waits for some room, and the email is rejected only if none is made in time.
+ * Closing the dispatcher stops accepting emails and waits for the queued ones to be sent.
+ *
+ * @author Grégory Van den Borre
+ */
+public class JavaMailDispatcher implements EmailService, AutoCloseable {
+
+    /**
+     * Default number of sending threads.
+     */
+    public static final int DEFAULT_THREADS = 2;
+
+    /**
+     * Default number of emails waiting to be sent.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1_000;
+
+    /**
+     * Maximum number of emails sent by a thread before checking the queue again.
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Time in milliseconds a thread waits for an email before checking if the dispatcher is closed.
+     */
+    private static final long POLL_TIMEOUT = 500;
+
+    /**
+     * Time in seconds a caller waits for room in a full queue.
+     */
+    private static final long OFFER_TIMEOUT = 30;
+
+    /**
+     * Time in seconds the close waits for the queued emails to be sent.
+     */
+    private static final long CLOSE_TIMEOUT = 30;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * Accounts used to send the emails.
+     */
+    private final List<Sender> senders;
+
+    /**
+     * Index of the next account to use.
+     */
+    private final AtomicInteger nextSender = new AtomicInteger();
+
+    /**
+     * Emails waiting to be sent.
+     */
+    private final BlockingQueue<PendingEmail> queue;
+
+    /**
+     * Threads sending the emails.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Number of emails that could not be sent.
+     */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Number of emails rejected because the queue stayed full.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Number of emails taken from the queue.
+     */
+    private final LongAdder dequeued = new LongAdder();
+
+    /**
+     * Total time spent by the emails in the queue, in nanoseconds.
+     */
+    private final LongAdder queueWait = new LongAdder();
+
+    /**
+     * False once closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Email configuration.
+     */
+    public JavaMailDispatcher(final EmailProperties properties) {
+        this(properties, properties.getEmailDispatcherThreads(), properties.getEmailQueueSize());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Email configuration.
+     * @param threads Number of sending threads, each one keeping a connection per account.
+     * @param queueSize Number of emails waiting to be sent.
+     */
+    JavaMailDispatcher(final EmailProperties properties, final int threads, final int queueSize) {
+        super();
+        Objects.requireNonNull(properties);
+        List<Sender> accounts = new ArrayList<>();
+        for (EmailAccount account : properties.getEmailAccounts()) {
+            accounts.add(new Sender(account, properties.getProperties(), properties.getEmailRatePerMinute()));
+        }
+        if (accounts.isEmpty()) {
+            throw new EmailException("No email account configured.");
+        }
+        this.senders = Collections.unmodifiableList(accounts);
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mail-dispatcher-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threads; i++) {
+            this.workers.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Send an email and wait for the mail server to accept it.
+     *
+     * @param template Email to send.
+     * @throws EmailException If the email could not be sent.
+     */
+    @Override
+    public final void send(final EmailTemplate template) {
+        try {
+            this.sendAsync(template).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof EmailException) {
+                throw (EmailException) e.getCause();
+            }
+            throw new EmailException(e);
+        }
+    }
+
+    @Override
+    public final CompletableFuture<Void> sendAsync(final EmailTemplate template) {
+        Objects.requireNonNull(template);
+        if (!this.running) {
+            return CompletableFuture.failedFuture(new EmailException("Email dispatcher is closed."));
+        }
+        PendingEmail pending = new PendingEmail(template);
+        try {
+            if (!this.queue.offer(pending, OFFER_TIMEOUT, TimeUnit.SECONDS)) {
+                this.rejected.increment();
+                this.logger.error("Mail to {0} not sent, the queue is full.", template.getEmail());
+                return CompletableFuture.failedFuture(new EmailException("Email queue is full."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new EmailException(e));
+        }
+        return pending.result;
+    }
+
+    /**
+     * Send the queued emails until the dispatcher is closed and the queue empty.
+     */
+    private void dispatch() {
+        Transport[] transports = new Transport[this.senders.size()];
+        List<PendingEmail> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (this.running || !this.queue.isEmpty()) {
+                PendingEmail first = this.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    this.queue.drainTo(batch, BATCH_SIZE - 1);
+                    long now = System.nanoTime();
+                    for (PendingEmail pending : batch) {
+                        this.queueWait.add(now - pending.enqueued);
+                        this.dequeued.increment();
+                    }
+                    this.sendBatch(transports, batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            batch.forEach(p -> p.result.completeExceptionally(new EmailException("Email dispatcher is closed.")));
+            for (Transport transport : transports) {
+                closeQuietly(transport);
+            }
+        }
+    }
+
+    /**
+     * Send a batch of emails, every email waits for an account to have a token available.
+     * A failed email is retried once on a new connection, the retry takes another token from the account, as the server may have counted the failed attempt.
+     * An unexpected error, like an invalid address, fails the email without retry.
+     *
+     * @param transports Connections of this thread, by account, an entry may be null or closed.
+     * @param batch Emails to send.
+     * @throws InterruptedException If interrupted while waiting for a token.
+     */
+    private void sendBatch(final Transport[] transports, final List<PendingEmail> batch) throws InterruptedException {
+        for (PendingEmail pending : batch) {
+            int index = this.acquireSender();
+            Sender sender = this.senders.get(index);
+            try {
+                MimeMessage message = sender.createMessage(pending.template);
+                try {
+                    transports[index] = sender.connected(transports[index]);
+                    transports[index].sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException first) {
+                    closeQuietly(transports[index]);
+                    transports[index] = null;
+                    acquire(sender.bucket);
+                    transports[index] = sender.connected(null);
+                    transports[index].sendMessage(message, message.getAllRecipients());
+                }
+            } catch (MessagingException | RuntimeException e) {
+                //Only this email fails, the thread keeps sending the next ones, nothing would restart it.
+                closeQuietly(transports[index]);
+                transports[index] = null;
+                this.failed.increment();
+                this.logger.error("Error sending mail with {0}", sender.account.login, e);
+                pending.result.completeExceptionally(new EmailException(e));
+                continue;
+            }
+            sender.sent.increment();
+            pending.result.complete(null);
+        }
+    }
+
+    /**
+     * Wait for an account to have a token, the accounts are tried in turn.
+     *
+     * @return The index of the account to use.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private int acquireSender() throws InterruptedException {
+        int size = this.senders.size();
+        while (true) {
+            int start = Math.floorMod(this.nextSender.getAndIncrement(), size);
+            long wait = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % size;
+                long next = this.senders.get(index).bucket.tryAcquire();
+                if (next == 0) {
+                    return index;
+                }
+                wait = Math.min(wait, next);
+            }
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Wait for a token of a given account.
+     *
+     * @param bucket Rate limit of the account.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void acquire(final TokenBucket bucket) throws InterruptedException {
+        long wait;
+        while ((wait = bucket.tryAcquire()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private static void closeQuietly(final Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                //Connection is discarded anyway.
+            }
+        }
+    }
+
+    /**
+     * @return The number of emails waiting to be sent.
+     */
+    public final int getQueueSize() {
+        return this.queue.size();
+    }
+
+    /**
+     * @return The time the oldest queued email is waiting.
+     */
+    public final Duration getOldestQueuedAge() {
+        PendingEmail oldest = this.queue.peek();
+        return oldest == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - oldest.enqueued);
+    }
+
+    /**
+     * @return The average time an email waited in the queue.
+     */
+    public final Duration getAverageQueueWait() {
+        long count = this.dequeued.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(this.queueWait.sum() / count);
+    }
+
+    /**
+     * @return The number of emails sent, all accounts included.
+     */
+    public final long getSentCount() {
+        return this.senders.stream().mapToLong(s -> s.sent.sum()).sum();
+    }
+
+    /**
+     * @return The number of emails sent by every account, sampling it gives the send rate of each account.
+     */
+    public final Map<String, Long> getSentCountByAccount() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Sender sender : this.senders) {
+            result.put(sender.account.login, sender.sent.sum());
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of emails that could not be sent.
+     */
+    public final long getFailedCount() {
+        return this.failed.sum();
+    }
+
+    /**
+     * @return The number of emails rejected because the queue stayed full.
+     */
+    public final long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    @Override
+    public final void close() {
+        this.running = false;
+        this.workers.shutdown();
+        try {
+            if (!this.workers.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                this.workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        PendingEmail remaining;
+        while ((remaining = this.queue.poll()) != null) {
+            this.failed.increment();
+            remaining.result.completeExceptionally(new EmailException("Email dispatcher is closed."));
+        }
+    }
+
+    /**
+     * An account sending emails, with its session and rate limit.
+     */
+    private static final class Sender {
+
+        private final EmailAccount account;
+
+        private final Session session;
+
+        private final TokenBucket bucket;
+
+        private final LongAdder sent = new LongAdder();
+
+        private Sender(final EmailAccount account, final Properties properties, final int ratePerMinute) {
+            this.account = account;
+            this.session = Session.getInstance(properties, new Authenticator() {
+
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(account.login, account.password);
+                }
+            });
+            this.bucket = new TokenBucket(ratePerMinute, System::nanoTime);
+        }
+
+        private MimeMessage createMessage(final EmailTemplate template) throws MessagingException {
+            MimeMessage message = new MimeMessage(this.session);
+            message.setFrom(new InternetAddress(this.account.login));
+            message.addRecipient(Message.RecipientType.TO, new InternetAddress(template.getEmail()));
+            message.setSubject(template.getTitle());
+            message.setText(template.getBody());
+            return message;
+        }
+
+        private Transport connected(final Transport transport) throws MessagingException {
+            Transport result = transport == null ? this.session.getTransport() : transport;
+            if (!result.isConnected()) {
+                result.connect(this.account.login, this.account.password);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An email waiting to be sent, with the result to complete.
+     */
+    private static final class PendingEmail {
+
+        private final EmailTemplate template;
+
+        private final long enqueued = System.nanoTime();
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingEmail(final EmailTemplate template) {
+            this.template = template;
+        }
+    }
+}
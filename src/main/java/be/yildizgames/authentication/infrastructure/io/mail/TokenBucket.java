@@ -0,0 +1,106 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.io.mail;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting the number of emails sent with an account.
+ * The bucket holds a single token, refilled at the configured rate: the emails are spaced by at least 1/rate of a minute,
+ * so any window of a minute never holds more than the rate, a bigger burst would add up with the refill and exceed the provider limit.
+ *
+ * @author Grégory Van den Borre
+ */
+final class TokenBucket {
+
+    /**
+     * Nanoseconds in a minute.
+     */
+    private static final long MINUTE = 60_000_000_000L;
+
+    /**
+     * Maximum number of tokens, any token kept in advance is sent on top of the rate in a window of a minute.
+     */
+    private static final long CAPACITY = 1;
+
+    /**
+     * Time in nanoseconds to produce one token.
+     */
+    private final long interval;
+
+    /**
+     * Monotonic clock, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Tokens currently available.
+     */
+    private long tokens;
+
+    /**
+     * Time of the last refill.
+     */
+    private long lastRefill;
+
+    /**
+     * Create a new bucket, initially full.
+     *
+     * @param ratePerMinute Number of tokens produced per minute.
+     * @param clock Monotonic clock, in nanoseconds.
+     */
+    TokenBucket(final int ratePerMinute, final LongSupplier clock) {
+        super();
+        if (ratePerMinute <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + ratePerMinute);
+        }
+        //Rounded up, the rate is never exceeded.
+        this.interval = (MINUTE + ratePerMinute - 1) / ratePerMinute;
+        this.clock = clock;
+        this.tokens = CAPACITY;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the time in nanoseconds until the next token is available.
+     */
+    synchronized long tryAcquire() {
+        long now = this.clock.getAsLong();
+        long produced = (now - this.lastRefill) / this.interval;
+        if (produced > 0) {
+            this.tokens = Math.min(CAPACITY, this.tokens + produced);
+            this.lastRefill = this.tokens == CAPACITY ? now : this.lastRefill + produced * this.interval;
+        }
+        if (this.tokens > 0) {
+            this.tokens--;
+            return 0;
+        }
+        return this.lastRefill + this.interval - now;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * In memory filter of the logins and emails used by the accounts and temporary accounts.
+ * When it answers a value is absent, the database does not need to be queried, a possible presence must still be verified in the database.
+ * Until loaded, every value is reported as possibly present.
+ * The filter only sees the changes made by this service, it must be the only one creating accounts.
+ * The values are normalized before being hashed: lower case, without accents nor trailing spaces, as the database collation may compare them
+ * this way, like the default MySQL one. Values equal for the collation then always share their hash, normalizing more than the collation
+ * only adds false positives, verified in the database.
+ *
+ * @author Grégory Van den Borre
+ */
+public class AccountExistenceFilter {
+
+    /**
+     * Default number of values the filter is sized for.
+     */
+    public static final int DEFAULT_EXPECTED_SIZE = 1_000_000;
+
+    /**
+     * Default false positive probability.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Number of rows retrieved at once while loading.
+     */
+    private static final int FETCH_SIZE = 1_000;
+
+    /**
+     * Accents and other combining marks, left once the values are decomposed.
+     */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * Logins in use.
+     */
+    private final CountingBloomFilter logins;
+
+    /**
+     * Emails in use.
+     */
+    private final CountingBloomFilter emails;
+
+    /**
+     * True once the filter content reflects the database.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Filter configuration.
+     */
+    public AccountExistenceFilter(final AccountFilterProperties properties) {
+        this(properties.getAccountFilterExpectedSize(), properties.getAccountFilterFalsePositiveRate());
+    }
+
+    /**
+     * Create a new instance with the default values.
+     */
+    public AccountExistenceFilter() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param expectedSize Number of values the filter is sized for.
+     * @param falsePositiveRate False positive probability.
+     */
+    AccountExistenceFilter(final int expectedSize, final double falsePositiveRate) {
+        super();
+        this.logins = new CountingBloomFilter(expectedSize, falsePositiveRate);
+        this.emails = new CountingBloomFilter(expectedSize, falsePositiveRate);
+    }
+
+    /**
+     * Create a filter never loaded, always answering a value may be present.
+     *
+     * @return The created filter.
+     */
+    public static AccountExistenceFilter disabled() {
+        return new AccountExistenceFilter(1, 0.5);
+    }
+
+    /**
+     * Fill the filter with the logins and emails from the database, streaming the tables.
+     *
+     * @param provider To connect to the database.
+     */
+    public final void load(final DataBaseConnectionProvider provider) {
+        Objects.requireNonNull(provider);
+        long start = System.nanoTime();
+        int count;
+        try (Connection c = provider.getConnection()) {
+            count = this.load(c, "SELECT LOGIN, EMAIL FROM ACCOUNTS WHERE ACTIVE = '1'");
+            count += this.load(c, "SELECT LOGIN, EMAIL FROM TEMP_ACCOUNTS");
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        this.loaded = true;
+        this.logger.info("Account existence filter loaded with {0} accounts in {1}ms.", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int load(final Connection c, final String query) throws SQLException {
+        int count = 0;
+        try (PreparedStatement stmt = c.prepareStatement(query)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    this.add(rs.getString(1), rs.getString(2));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Register a new account or temporary account.
+     *
+     * @param login Account login.
+     * @param email Account email.
+     */
+    public final void add(final String login, final String email) {
+        if (login != null) {
+            this.logins.add(normalize(login));
+        }
+        if (email != null) {
+            this.emails.add(normalize(email));
+        }
+    }
+
+    /**
+     * Unregister an account or temporary account removed from the database.
+     *
+     * @param login Account login.
+     * @param email Account email.
+     */
+    public final void remove(final String login, final String email) {
+        if (login != null) {
+            this.logins.remove(normalize(login));
+        }
+        if (email != null) {
+            this.emails.remove(normalize(email));
+        }
+    }
+
+    /**
+     * @param login Login to check.
+     * @return False if the login is certainly not used, true if it may be.
+     */
+    public final boolean mightContainLogin(final String login) {
+        return !this.loaded || this.logins.mightContain(normalize(login));
+    }
+
+    /**
+     * @param email Email to check.
+     * @return False if the email is certainly not used, true if it may be.
+     */
+    public final boolean mightContainEmail(final String email) {
+        return !this.loaded || this.emails.mightContain(normalize(email));
+    }
+
+    /**
+     * Compute the key hashed for a value, the same for all the values a case and accent insensitive collation considers equal.
+     *
+     * @param value Value to normalize.
+     * @return The value in lower case, without accents nor trailing spaces.
+     */
+    static String normalize(final String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).stripTrailing();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter with 4 bits counters instead of bits, allowing values to be removed.
+ * A negative answer is always exact, a positive answer can be wrong with the configured probability.
+ * A counter reaching its maximum value is never decremented anymore, this can only cause false positives.
+ * The counters are packed 16 per long and updated with compare and set, the filter is safe to use from several threads.
+ *
+ * @author Grégory Van den Borre
+ */
+final class CountingBloomFilter {
+
+    /**
+     * Number of bits per counter.
+     */
+    private static final int COUNTER_BITS = 4;
+
+    /**
+     * Number of counters in a long.
+     */
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+
+    /**
+     * Maximum value of a counter.
+     */
+    private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+
+    /**
+     * Packed counters.
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * Number of counters.
+     */
+    private final int size;
+
+    /**
+     * Number of counters used by a value.
+     */
+    private final int hashes;
+
+    /**
+     * Create a new filter.
+     *
+     * @param expectedSize Number of values expected to be in the filter.
+     * @param falsePositiveRate Probability of a positive answer for a value not in the filter, when the expected size is reached.
+     */
+    CountingBloomFilter(final int expectedSize, final double falsePositiveRate) {
+        super();
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("Expected size must be positive: " + expectedSize);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long counters = (long) Math.ceil(-expectedSize * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.size = (int) Math.min(Integer.MAX_VALUE - COUNTERS_PER_WORD, Math.max(COUNTERS_PER_WORD, counters));
+        this.hashes = Math.max(1, (int) Math.round((double) this.size / expectedSize * ln2));
+        this.words = new AtomicLongArray((this.size + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value Value to add.
+     */
+    void add(final String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < this.hashes; i++) {
+            this.increment(this.index(h1, h2, i));
+        }
+    }
+
+    /**
+     * Remove a value previously added.
+     *
+     * @param value Value to remove.
+     */
+    void remove(final String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < this.hashes; i++) {
+            this.decrement(this.index(h1, h2, i));
+        }
+    }
+
+    /**
+     * Check if a value could be in the filter.
+     *
+     * @param value Value to check.
+     * @return False if the value is certainly absent, true if it may be present.
+     */
+    boolean mightContain(final String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < this.hashes; i++) {
+            if (this.counter(this.index(h1, h2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all the values.
+     */
+    void clear() {
+        for (int i = 0; i < this.words.length(); i++) {
+            this.words.set(i, 0);
+        }
+    }
+
+    private int index(final int h1, final int h2, final int i) {
+        return Math.floorMod(h1 + i * h2, this.size);
+    }
+
+    private long counter(final int index) {
+        long word = this.words.get(index / COUNTERS_PER_WORD);
+        return (word >>> shift(index)) & COUNTER_MAX;
+    }
+
+    private void increment(final int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        long current;
+        do {
+            current = this.words.get(word);
+            if (((current >>> shift) & COUNTER_MAX) == COUNTER_MAX) {
+                return;
+            }
+        } while (!this.words.compareAndSet(word, current, current + (1L << shift)));
+    }
+
+    private void decrement(final int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        long current;
+        do {
+            current = this.words.get(word);
+            long counter = (current >>> shift) & COUNTER_MAX;
+            if (counter == 0 || counter == COUNTER_MAX) {
+                return;
+            }
+        } while (!this.words.compareAndSet(word, current, current - (1L << shift)));
+    }
+
+    private static int shift(final int index) {
+        return (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    /**
+     * 64 bits FNV-1a hash of the UTF-8 bytes, with a final mix to spread the bits between both halves.
+     *
+     * @param value Value to hash.
+     * @return The hash.
+     */
+    private static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
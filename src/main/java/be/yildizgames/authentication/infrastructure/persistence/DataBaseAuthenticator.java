@@ -27,9 +27,9 @@
 package be.yildizgames.authentication.infrastructure.persistence;
 
 import be.yildizgames.authentication.application.Authenticator;
-import be.yildizgames.common.authentication.BCryptEncryptionTool;
+import be.yildizgames.authentication.application.CachedCredential;
+import be.yildizgames.authentication.application.CredentialCache;
 import be.yildizgames.common.authentication.Credentials;
-import be.yildizgames.common.authentication.EncryptionTool;
 import be.yildizgames.common.authentication.UserNotFoundException;
 import be.yildizgames.common.authentication.protocol.TokenVerification;
 import be.yildizgames.common.logging.Logger;
@@ -41,6 +41,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This class is an authenticator, it provide logic to connect to a database and retrieve the connecting clients credentials.
@@ -49,6 +51,11 @@ import java.util.Objects;
  */
 public final class DataBaseAuthenticator implements Authenticator {
 
+    /**
+     * Query to retrieve an active account.
+     */
+    private static final String QUERY_ACCOUNT = "SELECT ID, PASSWORD FROM ACCOUNTS WHERE LOGIN = ? AND ACTIVE = ?";
+
     /**
      * Logger.
      */
@@ -65,9 +72,19 @@ public final class DataBaseAuthenticator implements Authenticator {
     private final DataBaseConnectionProvider provider;
 
     /**
-     * To encrypt the password.
+     * To verify the password out of the caller thread.
+     */
+    private final HashVerificationPool verificationPool;
+
+    /**
+     * To retrieve the known accounts without querying the database.
      */
-    private final EncryptionTool encrypting;
+    private final CredentialCache cache;
+
+    /**
+     * To prepare the queries only once per connection.
+     */
+    private final PreparedStatementCache statements = new PreparedStatementCache();
 
     /**
      * Create a new instance.
@@ -75,7 +92,28 @@ public final class DataBaseAuthenticator implements Authenticator {
      * @param provider To get the database connection.
      */
     public DataBaseAuthenticator(final DataBaseConnectionProvider provider) {
-        this(provider, null);
+        this(provider, new HashVerificationPool());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param provider To get the database connection.
+     * @param verificationPool To verify the password out of the caller thread.
+     */
+    public DataBaseAuthenticator(final DataBaseConnectionProvider provider, final HashVerificationPool verificationPool) {
+        this(provider, verificationPool, new CredentialCache());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param provider To get the database connection.
+     * @param verificationPool To verify the password out of the caller thread.
+     * @param cache To retrieve the known accounts without querying the database.
+     */
+    public DataBaseAuthenticator(final DataBaseConnectionProvider provider, final HashVerificationPool verificationPool, final CredentialCache cache) {
+        this(provider, verificationPool, cache, null);
     }
 
     /**
@@ -85,36 +123,82 @@ public final class DataBaseAuthenticator implements Authenticator {
      * @param key Backdoor key, can be null.
      */
     DataBaseAuthenticator(final DataBaseConnectionProvider provider, final String key) {
+        this(provider, new HashVerificationPool(), new CredentialCache(), key);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param provider To get the database connection.
+     * @param verificationPool To verify the password out of the caller thread.
+     * @param cache To retrieve the known accounts without querying the database.
+     * @param key Backdoor key, can be null.
+     */
+    private DataBaseAuthenticator(final DataBaseConnectionProvider provider, final HashVerificationPool verificationPool, final CredentialCache cache, final String key) {
         super();
         Objects.requireNonNull(provider);
+        Objects.requireNonNull(verificationPool);
+        Objects.requireNonNull(cache);
         this.provider = provider;
+        this.verificationPool = verificationPool;
+        this.cache = cache;
         this.key = key;
-        this.encrypting = new BCryptEncryptionTool();
     }
 
     @Override
     public TokenVerification getPasswordForUser(final Credentials credential) throws UserNotFoundException {
+        try {
+            return this.getPasswordForUserAsync(credential).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UserNotFoundException) {
+                throw (UserNotFoundException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<TokenVerification> getPasswordForUserAsync(final Credentials credential) {
         Objects.requireNonNull(credential);
+        CachedCredential account;
+        try {
+            account = this.cache.get(credential.login, this::findAccount);
+        } catch (UserNotFoundException | PersistenceException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (credential.password.equals(this.key)) {
+            this.logger.warning("{0} connected with generic password.", credential.login);
+            return CompletableFuture.completedFuture(new TokenVerification(account.id, true));
+        }
+        return this.verificationPool
+                .verify(account.hash, credential.password)
+                .thenApply(authenticated -> new TokenVerification(account.id, authenticated));
+    }
+
+    /**
+     * Retrieve the id and password hash of an active account.
+     *
+     * @param login Account login.
+     * @return The account id and password hash.
+     * @throws UserNotFoundException If no active account exists for the login.
+     */
+    private CachedCredential findAccount(final String login) throws UserNotFoundException {
         try (Connection c = this.provider.getConnection();
-             PreparedStatement stmt = createPreparedStatement(c, credential.login);
-             ResultSet results = stmt.executeQuery()) {
+             ResultSet results = this.createPreparedStatement(c, login).executeQuery()) {
             if (!results.next()) {
                 throw new UserNotFoundException();
             }
-            if (credential.password.equals(this.key)) {
-                this.logger.warning("{0} connected with generic password.", credential.login);
-                return new TokenVerification(PlayerId.valueOf(results.getInt("id")), true);
-            }
-            boolean authenticated = this.encrypting.check(results.getString("password"), credential.password);
-            return new TokenVerification(PlayerId.valueOf(results.getInt("id")), authenticated);
-        } catch (IllegalArgumentException | SQLException e) {
+            return new CachedCredential(PlayerId.valueOf(Math.toIntExact(results.getLong("id"))), results.getString("password"));
+        } catch (IllegalArgumentException | ArithmeticException | SQLException e) {
             throw new PersistenceException(e);
         }
     }
 
     private PreparedStatement createPreparedStatement(Connection c, String login) throws SQLException {
-        String query = "SELECT ID, PASSWORD FROM ACCOUNTS WHERE LOGIN = ? AND ACTIVE = ?";
-        PreparedStatement stmt = c.prepareStatement(query);
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_ACCOUNT);
         stmt.setString(1, login);
         stmt.setBoolean(2, true);
         return stmt;
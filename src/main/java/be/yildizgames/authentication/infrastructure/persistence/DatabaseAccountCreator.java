@@ -26,8 +26,14 @@
 
 package be.yildizgames.authentication.infrastructure.persistence;
 
+import be.yildizgames.authentication.application.AccountAvailability;
 import be.yildizgames.authentication.application.AccountCreator;
+import be.yildizgames.authentication.application.CredentialCache;
+import be.yildizgames.authentication.application.EmailAlreadyExistException;
+import be.yildizgames.authentication.infrastructure.AccountCreatedEvent;
+import be.yildizgames.authentication.infrastructure.AccountCreatedEventPublisher;
 import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
 import be.yildizgames.common.authentication.BCryptEncryptionTool;
 import be.yildizgames.common.authentication.EncryptionTool;
 import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
@@ -42,8 +48,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Materialize the account and temporary account in the database.
@@ -52,6 +69,52 @@ import java.util.UUID;
  */
 public class DatabaseAccountCreator implements AccountCreator {
 
+    private static final String QUERY_SEARCH_ACCOUNT = "SELECT ID FROM ACCOUNTS WHERE LOGIN = ? AND ACTIVE = '1'";
+
+    private static final String QUERY_SEARCH_TEMP_ACCOUNT = "SELECT ID FROM TEMP_ACCOUNTS WHERE LOGIN = ?";
+
+    private static final String QUERY_SEARCH_EMAIL = "SELECT ID FROM ACCOUNTS WHERE EMAIL = ? AND ACTIVE = '1'";
+
+    private static final String QUERY_SEARCH_TEMP_EMAIL = "SELECT ID FROM TEMP_ACCOUNTS WHERE EMAIL = ?";
+
+    private static final String QUERY_AVAILABILITY =
+            "SELECT 'L' AS KIND FROM ACCOUNTS WHERE LOGIN = ? AND ACTIVE = '1'"
+            + " UNION ALL SELECT 'L' AS KIND FROM TEMP_ACCOUNTS WHERE LOGIN = ?"
+            + " UNION ALL SELECT 'E' AS KIND FROM ACCOUNTS WHERE EMAIL = ? AND ACTIVE = '1'"
+            + " UNION ALL SELECT 'E' AS KIND FROM TEMP_ACCOUNTS WHERE EMAIL = ?";
+
+    private static final String QUERY_GET_TEMP_ACCOUNT = "SELECT ID, LOGIN, PASSWORD, EMAIL FROM TEMP_ACCOUNTS WHERE CHECK_VALUE = ? AND LOGIN = ?";
+
+    /**
+     * Move the temporary account to the accounts in a single statement, PostgreSQL only.
+     */
+    private static final String QUERY_MOVE_TEMP_ACCOUNT_POSTGRESQL =
+            "WITH TEMP AS (DELETE FROM TEMP_ACCOUNTS WHERE CHECK_VALUE = ? AND LOGIN = ? RETURNING LOGIN, PASSWORD, EMAIL)"
+            + " INSERT INTO ACCOUNTS (LOGIN, PASSWORD, EMAIL, ACTIVE) SELECT LOGIN, PASSWORD, EMAIL, TRUE FROM TEMP RETURNING ID, LOGIN";
+
+    private static final String QUERY_GET_TEMP_ACCOUNTS = "SELECT ID, LOGIN, PASSWORD, EMAIL, CHECK_VALUE FROM TEMP_ACCOUNTS WHERE CHECK_VALUE IN (%s)";
+
+    private static final String QUERY_MOVE_TEMP_ACCOUNTS =
+            "INSERT INTO ACCOUNTS (LOGIN, PASSWORD, EMAIL, ACTIVE) SELECT LOGIN, PASSWORD, EMAIL, TRUE FROM TEMP_ACCOUNTS WHERE ID IN (%s)";
+
+    private static final String QUERY_DELETE_TEMP_ACCOUNTS = "DELETE FROM TEMP_ACCOUNTS WHERE ID IN (%s)";
+
+    /**
+     * The accounts just inserted have the highest id for their login, an older active account with the same login is not notified again.
+     */
+    private static final String QUERY_ACCOUNT_IDS = "SELECT MAX(ID), LOGIN FROM ACCOUNTS WHERE ACTIVE = '1' AND LOGIN IN (%s) GROUP BY LOGIN";
+
+    /**
+     * Move several temporary accounts to the accounts in a single statement, PostgreSQL only.
+     */
+    private static final String QUERY_MOVE_TEMP_ACCOUNTS_POSTGRESQL =
+            "WITH TEMP AS (DELETE FROM TEMP_ACCOUNTS WHERE ID IN (%s) RETURNING LOGIN, PASSWORD, EMAIL)"
+            + " INSERT INTO ACCOUNTS (LOGIN, PASSWORD, EMAIL, ACTIVE) SELECT LOGIN, PASSWORD, EMAIL, TRUE FROM TEMP RETURNING ID, LOGIN";
+
+    private static final String QUERY_INSERT_ACCOUNT = "INSERT INTO ACCOUNTS (LOGIN, PASSWORD, EMAIL, ACTIVE) VALUES (?,?,?,?)";
+
+    private static final String QUERY_DELETE_TEMP_ACCOUNT = "DELETE FROM TEMP_ACCOUNTS WHERE ID = ?";
+
     /**
      * Logger.
      */
@@ -63,50 +126,116 @@ public class DatabaseAccountCreator implements AccountCreator {
     private final DataBaseConnectionProvider provider;
 
     /**
-     * To send messages to the async message system.
+     * To notify the account creations.
      */
-    private final AsyncMessageProducer messageProducer;
+    private final AccountCreatedEventPublisher eventPublisher;
 
     /**
      * To encrypt the passwords.
      */
     private final EncryptionTool encryptionTool = new BCryptEncryptionTool();
 
+    /**
+     * Credential cache to invalidate when an account changes.
+     */
+    private final CredentialCache credentialCache;
+
+    /**
+     * To prepare the queries only once per connection.
+     */
+    private final PreparedStatementCache statements = new PreparedStatementCache();
+
+    /**
+     * To answer without querying the database when a login or email is certainly not used.
+     */
+    private final AccountExistenceFilter existenceFilter;
+
+    /**
+     * To write the temporary accounts with group commit.
+     */
+    private final TemporaryAccountWriter writer;
+
+    /**
+     * Limit the number of passwords hashed at the same time, the hashing is CPU heavy.
+     */
+    private final Semaphore hashPermits;
+
+    /**
+     * Limit the number of creations reading the database at the same time, independently of the authentications.
+     * The writes are not counted, the group commit already limits them.
+     */
+    private final Semaphore databasePermits;
+
+    /**
+     * True if the database is PostgreSQL, null until the first confirmation.
+     */
+    private volatile Boolean postgresql;
+
     public DatabaseAccountCreator(DataBaseConnectionProvider provider, AsyncMessageProducer messageProducer) {
+        this(provider, new AccountCreatedEventPublisher(messageProducer), new CredentialCache(), AccountExistenceFilter.disabled(), new TemporaryAccountWriter(provider));
+    }
+
+    public DatabaseAccountCreator(DataBaseConnectionProvider provider, AccountCreatedEventPublisher eventPublisher, CredentialCache credentialCache, AccountExistenceFilter existenceFilter, TemporaryAccountWriter writer) {
+        this(provider, eventPublisher, credentialCache, existenceFilter, writer, new AccountCreationProperties() {
+            @Override
+            public int getAccountCreationHashPermits() {
+                return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            }
+
+            @Override
+            public int getAccountCreationDatabasePermits() {
+                return 4;
+            }
+        });
+    }
+
+    public DatabaseAccountCreator(DataBaseConnectionProvider provider, AccountCreatedEventPublisher eventPublisher, CredentialCache credentialCache,
+                                  AccountExistenceFilter existenceFilter, TemporaryAccountWriter writer, AccountCreationProperties properties) {
         super();
         Objects.requireNonNull(provider);
-        Objects.requireNonNull(messageProducer);
+        Objects.requireNonNull(eventPublisher);
+        Objects.requireNonNull(writer);
+        Objects.requireNonNull(credentialCache);
+        Objects.requireNonNull(existenceFilter);
+        Objects.requireNonNull(properties);
         this.provider = provider;
-        this.messageProducer = messageProducer;
+        this.eventPublisher = eventPublisher;
+        this.writer = writer;
+        this.credentialCache = credentialCache;
+        this.existenceFilter = existenceFilter;
+        this.hashPermits = new Semaphore(properties.getAccountCreationHashPermits(), true);
+        this.databasePermits = new Semaphore(properties.getAccountCreationDatabasePermits(), true);
     }
 
     @Override
     public final boolean loginAlreadyExist(String login) {
         Objects.requireNonNull(login);
-        try (Connection c = this.provider.getConnection();
-             PreparedStatement stmt = this.createPreparedStatementSearchAccount(c, login);
-             ResultSet result = stmt.executeQuery()) {
-            if(result.next()) {
-                return true;
-            }
-            try (ResultSet resultTemp = this.createPreparedStatementSearchTempAccount(c, login).executeQuery()) {
-                return resultTemp.next();
-            }
-        } catch (SQLException e) {
-            throw new PersistenceException(e);
+        if (!this.existenceFilter.mightContainLogin(login)) {
+            return false;
         }
+        return this.withDatabasePermit(() -> {
+            try (Connection c = this.provider.getConnection();
+                 ResultSet result = this.createPreparedStatementSearchAccount(c, login).executeQuery()) {
+                if(result.next()) {
+                    return true;
+                }
+                try (ResultSet resultTemp = this.createPreparedStatementSearchTempAccount(c, login).executeQuery()) {
+                    return resultTemp.next();
+                }
+            } catch (SQLException e) {
+                throw new PersistenceException(e);
+            }
+        });
     }
 
     private PreparedStatement createPreparedStatementSearchAccount(Connection c, String login) throws SQLException {
-        String query = "SELECT ID FROM ACCOUNTS WHERE LOGIN = ? AND ACTIVE = '1'";
-        PreparedStatement stmt = c.prepareStatement(query);
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_SEARCH_ACCOUNT);
         stmt.setString(1, login);
         return stmt;
     }
 
     private PreparedStatement createPreparedStatementSearchTempAccount(Connection c, String login) throws SQLException {
-        String query = "SELECT ID FROM TEMP_ACCOUNTS WHERE LOGIN = ?";
-        PreparedStatement stmt = c.prepareStatement(query);
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_SEARCH_TEMP_ACCOUNT);
         stmt.setString(1, login);
         return stmt;
     }
@@ -114,14 +243,25 @@ public class DatabaseAccountCreator implements AccountCreator {
     @Override
     public final boolean emailAlreadyExist(String email) {
         Objects.requireNonNull(email);
+        if (!this.existenceFilter.mightContainEmail(email)) {
+            return false;
+        }
+        return this.withDatabasePermit(() -> this.emailStored(email));
+    }
+
+    /**
+     * Check if an email is used by an account or a temporary account, without the existence filter.
+     *
+     * @param email Email to check.
+     * @return True if the email is found.
+     */
+    private boolean emailStored(String email) {
         try (Connection c = this.provider.getConnection();
-             PreparedStatement stmt = this.createPreparedStatementSearchEmail(c, email);
-             ResultSet result = stmt.executeQuery()) {
+             ResultSet result = this.createPreparedStatementSearchEmail(c, email).executeQuery()) {
             if(result.next()) {
                 return true;
             }
-            try (PreparedStatement stmtTemp = this.createPreparedStatementSearchTempEmail(c, email);
-                 ResultSet resultTemp = stmtTemp.executeQuery()) {
+            try (ResultSet resultTemp = this.createPreparedStatementSearchTempEmail(c, email).executeQuery()) {
                 return resultTemp.next();
             }
         } catch (SQLException e) {
@@ -130,103 +270,377 @@ public class DatabaseAccountCreator implements AccountCreator {
     }
 
     private PreparedStatement createPreparedStatementSearchEmail(Connection c, String email) throws SQLException {
-        String query = "SELECT ID FROM ACCOUNTS WHERE EMAIL = ? AND ACTIVE = '1'";
-        PreparedStatement stmt = c.prepareStatement(query);
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_SEARCH_EMAIL);
         stmt.setString(1, email);
         return stmt;
     }
 
     private PreparedStatement createPreparedStatementSearchTempEmail(Connection c, String email) throws SQLException {
-        String query = "SELECT ID FROM TEMP_ACCOUNTS WHERE EMAIL = ?";
-        PreparedStatement stmt = c.prepareStatement(query);
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_SEARCH_TEMP_EMAIL);
         stmt.setString(1, email);
         return stmt;
     }
 
     @Override
-    public final void create(TemporaryAccountDto dto, UUID token) {
+    public final AccountAvailability checkAvailability(String login, String email) {
+        Objects.requireNonNull(login);
+        Objects.requireNonNull(email);
+        if (!this.existenceFilter.mightContainLogin(login) && !this.existenceFilter.mightContainEmail(email)) {
+            return new AccountAvailability(false, false);
+        }
+        return this.withDatabasePermit(() -> {
+            try (Connection c = this.provider.getConnection();
+                 ResultSet result = this.createPreparedStatementAvailability(c, login, email).executeQuery()) {
+                boolean loginExisting = false;
+                boolean emailExisting = false;
+                while (result.next()) {
+                    if ("L".equals(result.getString(1))) {
+                        loginExisting = true;
+                    } else {
+                        emailExisting = true;
+                    }
+                }
+                return new AccountAvailability(loginExisting, emailExisting);
+            } catch (SQLException e) {
+                throw new PersistenceException(e);
+            }
+        });
+    }
+
+    /**
+     * Run a database read holding a creation database permit.
+     *
+     * @param query Query to run.
+     * @param <T> Query result type.
+     * @return The query result.
+     */
+    private <T> T withDatabasePermit(Supplier<T> query) {
+        this.databasePermits.acquireUninterruptibly();
+        try {
+            return query.get();
+        } finally {
+            this.databasePermits.release();
+        }
+    }
+
+    private PreparedStatement createPreparedStatementAvailability(Connection c, String login, String email) throws SQLException {
+        PreparedStatement stmt = this.statements.prepare(c, QUERY_AVAILABILITY);
+        stmt.setString(1, login);
+        stmt.setString(2, login);
+        stmt.setString(3, email);
+        stmt.setString(4, email);
+        return stmt;
+    }
+
+    @Override
+    public final void create(TemporaryAccountDto dto, UUID token, EmailTemplate email) {
         this.logger.debug("Create temporary account for {0}.", dto.login);
         Objects.requireNonNull(dto);
         Objects.requireNonNull(token);
-        String sql = "INSERT INTO TEMP_ACCOUNTS (LOGIN, PASSWORD, EMAIL, CHECK_VALUE, DATE) VALUES (?,?,?,?,?)";
-        try (Connection c = this.provider.getConnection();
-             PreparedStatement stmt = c.prepareStatement(sql)) {
-            stmt.setString(1, dto.login);
-            stmt.setString(2, this.encryptionTool.encrypt(dto.password));
-            stmt.setString(3, dto.email);
-            stmt.setString(4, token.toString());
-            stmt.setTimestamp(5, Timestamp.from(Instant.now()));
-            stmt.executeUpdate();
-            this.logger.debug("Create temporary account for {0} successfully executed.", dto.login);
-        } catch (SQLException e) {
+        Objects.requireNonNull(email);
+        String password;
+        this.hashPermits.acquireUninterruptibly();
+        try {
+            password = this.encryptionTool.encrypt(dto.password);
+        } finally {
+            this.hashPermits.release();
+        }
+        //No permit held while waiting for the group commit, the writer bounds the database accesses itself.
+        try {
+            this.writer.write(dto.login, password, dto.email, token.toString(), Timestamp.from(Instant.now()), email).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PersistenceException) {
+                //The creations are ordered by login only, another login can store the same email between the check and the write,
+                //the unique email index rejects it. The filter may not know the other account yet, the database is read.
+                if (isConstraintViolation(e.getCause().getCause()) && this.withDatabasePermit(() -> this.emailStored(dto.email))) {
+                    throw new EmailAlreadyExistException("Email already used for " + dto.login);
+                }
+                throw (PersistenceException) e.getCause();
+            }
             throw new PersistenceException(e);
         }
+        this.existenceFilter.add(dto.login, dto.email);
+        this.logger.debug("Create temporary account for {0} successfully executed.", dto.login);
+    }
+
+    /**
+     * Check if an error is an integrity constraint violation, like a duplicate value in a unique index.
+     *
+     * @param error Error to check.
+     * @return True if the error, or one of the chained ones, has an integrity constraint violation SQL state.
+     */
+    private static boolean isConstraintViolation(Throwable error) {
+        if (!(error instanceof SQLException)) {
+            return false;
+        }
+        for (SQLException e = (SQLException) error; e != null; e = e.getNextException()) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void confirm(AccountConfirmationDto validation) {
         Objects.requireNonNull(validation);
         Transaction transaction = new Transaction(this.provider);
+        AtomicReference<AccountCreatedEvent> created = new AtomicReference<>();
         transaction.execute(c -> {
-            String query = "SELECT * FROM TEMP_ACCOUNTS WHERE LOGIN = ?";
-            PreparedStatement getTemp = c.prepareStatement(query);
-            getTemp.setString(1, validation.getLogin());
-            ResultSet rs = getTemp.executeQuery();
-            if (!rs.next()) {
-                this.logger.warning("Invalid login received from {0}", validation.getLogin());
-                return;
+            //Login and email move from the temporary account to the account, the existence filter stays the same.
+            AccountCreatedEvent event = this.isPostgresql(c) ? this.moveTempAccountPostgresql(c, validation) : this.moveTempAccount(c, validation);
+            if (event == null) {
+                this.logger.warning("Invalid login or token received from {0}", validation.getLogin());
             }
-            int id = rs.getInt(1);
-            String login = rs.getString(2);
-            String password = rs.getString(3);
-            String email = rs.getString(4);
-            String token = rs.getString(5);
+            created.set(event);
+        });
+        this.credentialCache.invalidate(validation.getLogin());
+        //Sent once committed, to never notify an account that was rolled back.
+        if (created.get() != null) {
+            this.eventPublisher.publish(created.get());
+        }
+    }
 
-            if (!token.equals(validation.getToken())) {
-                this.logger.warning("Invalid token received from {0}", login);
-                return;
+    /**
+     * Confirm the accounts with set based queries: one query to find the temporary accounts matching the tokens,
+     * one insert and one delete to move them, and one query to read the account ids, or a single statement on PostgreSQL.
+     * The created accounts are notified at once, in batch messages only if the event batching is enabled.
+     * If the batch fails, the confirmations are processed again one by one, so an invalid one does not fail the others.
+     *
+     * @param validations Confirmations to process.
+     */
+    @Override
+    public void confirmAll(List<AccountConfirmationDto> validations) {
+        Objects.requireNonNull(validations);
+        if (validations.size() <= 1) {
+            validations.forEach(this::confirm);
+            return;
+        }
+        //Several confirmations can carry the same token with different logins, only the one matching the temporary account is confirmed.
+        Map<String, Set<String>> loginsByToken = new HashMap<>();
+        for (AccountConfirmationDto validation : validations) {
+            if (validation.getToken() != null && validation.getLogin() != null) {
+                loginsByToken.computeIfAbsent(validation.getToken(), t -> new HashSet<>()).add(validation.getLogin());
             }
+        }
+        List<AccountCreatedEvent> created = new ArrayList<>();
+        Transaction transaction = new Transaction(this.provider);
+        try {
+            transaction.execute(c -> this.moveTempAccounts(c, loginsByToken, created));
+        } catch (IllegalStateException e) {
+            this.logger.warning("Confirmation batch of {0} failed, confirming them one by one: {1}", validations.size(), e.getMessage());
+            this.confirmOneByOne(validations);
+            return;
+        }
+        validations.forEach(v -> this.credentialCache.invalidate(v.getLogin()));
+        if (created.size() < validations.size()) {
+            this.logger.warning("{0} invalid logins or tokens received in a batch of {1}", validations.size() - created.size(), validations.size());
+        }
+        //Sent once committed, to never notify an account that was rolled back.
+        this.eventPublisher.publishAll(created);
+    }
 
-            insertAccount(c, login, password, email);
-            deleteTemp(c, id);
-            int accountId = getCreatedAccountId(c, login);
-            this.messageProducer.sendMessage("{login:" + login + ", id:" + accountId + "}");
-        });
+    private void confirmOneByOne(List<AccountConfirmationDto> validations) {
+        for (AccountConfirmationDto validation : validations) {
+            try {
+                this.confirm(validation);
+            } catch (IllegalStateException e) {
+                this.logger.error("Error confirming the account {0}", validation.getLogin(), e);
+            }
+        }
     }
 
-    private void insertAccount(Connection c, String login, String password, String email) throws SQLException{
-        String query = "INSERT INTO ACCOUNTS (LOGIN, PASSWORD, EMAIL, ACTIVE) VALUES (?,?,?,?)";
-        try(PreparedStatement insertAccount = c.prepareStatement(query)) {
-            insertAccount.setString(1, login);
-            insertAccount.setString(2, password);
-            insertAccount.setString(3, email);
-            insertAccount.setBoolean(4, true);
-            insertAccount.executeUpdate();
+    /**
+     * Move the temporary accounts matching the tokens and logins to the accounts.
+     *
+     * @param c Connection to use, in a transaction.
+     * @param loginsByToken Expected logins for every token.
+     * @param created Filled with the created accounts, cleared first as the transaction can be retried.
+     * @throws SQLException If an error occurs while moving the accounts.
+     */
+    private void moveTempAccounts(Connection c, Map<String, Set<String>> loginsByToken, List<AccountCreatedEvent> created) throws SQLException {
+        created.clear();
+        if (loginsByToken.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        List<String> logins = new ArrayList<>();
+        this.findTempAccounts(c, loginsByToken, ids, logins);
+        if (ids.isEmpty()) {
+            return;
+        }
+        //Login and email move from the temporary accounts to the accounts, the existence filter stays the same.
+        if (this.isPostgresql(c)) {
+            PreparedStatement move = this.prepareIn(c, QUERY_MOVE_TEMP_ACCOUNTS_POSTGRESQL, ids.size());
+            setIn(move, 1, ids);
+            this.readCreated(move, created);
+        } else {
+            PreparedStatement move = this.prepareIn(c, QUERY_MOVE_TEMP_ACCOUNTS, ids.size());
+            setIn(move, 1, ids);
+            move.executeUpdate();
+            PreparedStatement delete = this.prepareIn(c, QUERY_DELETE_TEMP_ACCOUNTS, ids.size());
+            setIn(delete, 1, ids);
+            delete.executeUpdate();
+            PreparedStatement accountIds = this.prepareIn(c, QUERY_ACCOUNT_IDS, logins.size());
+            setIn(accountIds, 1, logins);
+            this.readCreated(accountIds, created);
         }
     }
 
-    private void deleteTemp(Connection c, int id) throws SQLException{
-        String query = "DELETE FROM TEMP_ACCOUNTS WHERE ID = ?";
-        try(PreparedStatement deleteTemp = c.prepareStatement(query)) {
-            deleteTemp.setInt(1, id);
-            deleteTemp.executeUpdate();
+    /**
+     * Find the temporary accounts matching the tokens and their login.
+     *
+     * @param c Connection to use.
+     * @param loginsByToken Expected logins for every token.
+     * @param ids Filled with the ids of the matching temporary accounts.
+     * @param logins Filled with the logins of the matching temporary accounts.
+     * @throws SQLException If an error occurs while reading the temporary accounts.
+     */
+    private void findTempAccounts(Connection c, Map<String, Set<String>> loginsByToken, List<Long> ids, List<String> logins) throws SQLException {
+        List<String> tokens = new ArrayList<>(loginsByToken.keySet());
+        PreparedStatement getTemp = this.prepareIn(c, QUERY_GET_TEMP_ACCOUNTS, tokens.size());
+        setIn(getTemp, 1, tokens);
+        try (ResultSet rs = getTemp.executeQuery()) {
+            while (rs.next()) {
+                String login = rs.getString(2);
+                if (loginsByToken.getOrDefault(rs.getString(5), Collections.emptySet()).contains(login)) {
+                    ids.add(rs.getLong(1));
+                    logins.add(login);
+                }
+            }
         }
     }
 
-    private int getCreatedAccountId(Connection c, String login) throws SQLException{
-        int accountId;
-        try(PreparedStatement getAccount = createPreparedStatementAccountId(c, login);
-            ResultSet rs = getAccount.executeQuery()) {
-            rs.next();
-            accountId = rs.getInt(1);
+    private void readCreated(PreparedStatement query, List<AccountCreatedEvent> created) throws SQLException {
+        Instant now = Instant.now();
+        try (ResultSet rs = query.executeQuery()) {
+            while (rs.next()) {
+                created.add(new AccountCreatedEvent(rs.getString(2), rs.getLong(1), now));
+            }
         }
-        return accountId;
     }
 
-    private PreparedStatement createPreparedStatementAccountId(Connection c, String login) throws SQLException {
-        String query = "SELECT ID FROM ACCOUNTS WHERE LOGIN = ?";
-        PreparedStatement stmt = c.prepareStatement(query);
-        stmt.setString(1, login);
-        return stmt;
+    /**
+     * Prepare a query with an IN clause, the number of parameters is rounded up to a power of two, to limit the number of different statements to prepare.
+     *
+     * @param c Connection to use.
+     * @param query Query with a %s placeholder for the IN parameters.
+     * @param size Number of values.
+     * @return The prepared statement, not to be closed.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    private PreparedStatement prepareIn(Connection c, String query, int size) throws SQLException {
+        int padded = padded(size);
+        StringBuilder parameters = new StringBuilder(padded * 2);
+        for (int i = 0; i < padded; i++) {
+            parameters.append(i == 0 ? "?" : ",?");
+        }
+        return this.statements.prepare(c, String.format(query, parameters));
+    }
+
+    private static int padded(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Set the values of an IN clause prepared with prepareIn, the padding parameters repeat the last value.
+     *
+     * @param stmt Statement to fill.
+     * @param first Index of the first IN parameter.
+     * @param values Values to set.
+     * @throws SQLException If a parameter cannot be set.
+     */
+    private static void setIn(PreparedStatement stmt, int first, List<?> values) throws SQLException {
+        int count = padded(values.size());
+        for (int i = 0; i < count; i++) {
+            stmt.setObject(first + i, values.get(Math.min(i, values.size() - 1)));
+        }
+    }
+
+    /**
+     * Move the temporary account to the accounts in a single round trip.
+     *
+     * @param c Connection to use.
+     * @param validation Login and token to confirm.
+     * @return The created account event, or null if no temporary account matches the login and token.
+     * @throws SQLException If an error occurs while moving the account.
+     */
+    private AccountCreatedEvent moveTempAccountPostgresql(Connection c, AccountConfirmationDto validation) throws SQLException {
+        PreparedStatement move = this.statements.prepare(c, QUERY_MOVE_TEMP_ACCOUNT_POSTGRESQL);
+        move.setString(1, validation.getToken());
+        move.setString(2, validation.getLogin());
+        try (ResultSet rs = move.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            return new AccountCreatedEvent(rs.getString(2), rs.getLong(1), Instant.now());
+        }
+    }
+
+    /**
+     * Move the temporary account to the accounts, reading the account id from the generated keys.
+     *
+     * @param c Connection to use.
+     * @param validation Login and token to confirm.
+     * @return The created account event, or null if no temporary account matches the login and token.
+     * @throws SQLException If an error occurs while moving the account.
+     */
+    private AccountCreatedEvent moveTempAccount(Connection c, AccountConfirmationDto validation) throws SQLException {
+        PreparedStatement getTemp = this.statements.prepare(c, QUERY_GET_TEMP_ACCOUNT);
+        getTemp.setString(1, validation.getToken());
+        getTemp.setString(2, validation.getLogin());
+        long id;
+        String login;
+        String password;
+        String email;
+        try (ResultSet rs = getTemp.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            id = rs.getLong(1);
+            login = rs.getString(2);
+            password = rs.getString(3);
+            email = rs.getString(4);
+        }
+        long accountId = this.insertAccount(c, login, password, email);
+        this.deleteTemp(c, id);
+        return new AccountCreatedEvent(login, accountId, Instant.now());
+    }
+
+    private long insertAccount(Connection c, String login, String password, String email) throws SQLException {
+        PreparedStatement insertAccount = this.statements.prepareReturningKeys(c, QUERY_INSERT_ACCOUNT);
+        insertAccount.setString(1, login);
+        insertAccount.setString(2, password);
+        insertAccount.setString(3, email);
+        insertAccount.setBoolean(4, true);
+        insertAccount.executeUpdate();
+        try (ResultSet keys = insertAccount.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No generated id for account " + login);
+            }
+            return keys.getLong(1);
+        }
+    }
+
+    private void deleteTemp(Connection c, long id) throws SQLException {
+        PreparedStatement deleteTemp = this.statements.prepare(c, QUERY_DELETE_TEMP_ACCOUNT);
+        deleteTemp.setLong(1, id);
+        deleteTemp.executeUpdate();
+    }
+
+    /**
+     * Check if the database is PostgreSQL, the result is kept as the database does not change.
+     *
+     * @param c Connection to check.
+     * @return True if the database is PostgreSQL.
+     * @throws SQLException If the database metadata cannot be read.
+     */
+    private boolean isPostgresql(Connection c) throws SQLException {
+        Boolean result = this.postgresql;
+        if (result == null) {
+            result = "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName());
+            this.postgresql = result;
+        }
+        return result;
     }
 }
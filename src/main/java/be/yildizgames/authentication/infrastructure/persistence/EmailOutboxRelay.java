@@ -0,0 +1,307 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailService;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send the emails stored in the EMAIL_OUTBOX table, written in the same transaction as the data they are about.
+ * The pending emails are read by batch and sent in parallel, the sent ones are deleted.
+ * A failed email is retried later, with a delay doubling at every attempt, after the maximum number of attempts, it is kept in the table as dead.
+ * An email not sent in time is counted as failed, so a stuck email service cannot block the relay.
+ * Only one relay must run on a database.
+ *
+ * @author Grégory Van den Borre
+ */
+public class EmailOutboxRelay implements AutoCloseable {
+
+    /**
+     * Status of an email waiting to be sent.
+     */
+    static final int STATUS_PENDING = 0;
+
+    /**
+     * Status of an email not sent after the maximum number of attempts.
+     */
+    static final int STATUS_DEAD = 1;
+
+    /**
+     * Maximum number of emails read at once.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Number of attempts before an email is considered dead.
+     */
+    private static final int MAXIMUM_ATTEMPTS = 8;
+
+    /**
+     * Delay before the first retry.
+     */
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(10);
+
+    /**
+     * Maximum delay between two retries.
+     */
+    private static final Duration MAXIMUM_BACKOFF = Duration.ofHours(1);
+
+    /**
+     * Maximum time to wait for a batch to be sent, the emails not sent in time are retried later.
+     */
+    private static final Duration SEND_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * Delay between two checks of the table when no email is waiting.
+     */
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private static final String QUERY_PENDING = "SELECT ID, RECIPIENT, TITLE, BODY, ATTEMPTS FROM EMAIL_OUTBOX WHERE STATUS = ? AND NEXT_ATTEMPT <= ? ORDER BY NEXT_ATTEMPT";
+
+    private static final String QUERY_DELETE = "DELETE FROM EMAIL_OUTBOX WHERE ID = ?";
+
+    private static final String QUERY_RETRY = "UPDATE EMAIL_OUTBOX SET ATTEMPTS = ?, NEXT_ATTEMPT = ?, STATUS = ? WHERE ID = ?";
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * To connect to the database.
+     */
+    private final DataBaseConnectionProvider provider;
+
+    /**
+     * To send the emails.
+     */
+    private final EmailService emailService;
+
+    /**
+     * Run the relay.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Create a new instance, the relay is not started.
+     *
+     * @param provider To connect to the database.
+     * @param emailService To send the emails.
+     */
+    public EmailOutboxRelay(final DataBaseConnectionProvider provider, final EmailService emailService) {
+        super();
+        Objects.requireNonNull(provider);
+        Objects.requireNonNull(emailService);
+        this.provider = provider;
+        this.emailService = emailService;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "email-outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start relaying the emails.
+     */
+    public final void start() {
+        this.executor.scheduleWithFixedDelay(this::drain, 0, POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send the pending emails until there is no full batch left.
+     */
+    private void drain() {
+        try {
+            int count;
+            do {
+                count = this.relay();
+            } while (count == BATCH_SIZE && !this.executor.isShutdown());
+        } catch (RuntimeException e) {
+            //Never let an exception escape, it would silently cancel the scheduled relay.
+            this.logger.error("Error relaying the outbox emails", e);
+        }
+    }
+
+    /**
+     * Send a batch of pending emails.
+     *
+     * @return The number of emails processed.
+     */
+    final int relay() {
+        List<OutboxEmail> emails = this.readPending();
+        if (emails.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Void>> results = new ArrayList<>(emails.size());
+        for (OutboxEmail email : emails) {
+            results.add(this.emailService.sendAsync(email));
+        }
+        List<OutboxEmail> sent = new ArrayList<>(emails.size());
+        List<OutboxEmail> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + SEND_TIMEOUT.toNanos();
+        for (int i = 0; i < emails.size(); i++) {
+            boolean success = results.get(i)
+                    .handle((v, e) -> e == null)
+                    .completeOnTimeout(false, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    .join();
+            (success ? sent : failed).add(emails.get(i));
+        }
+        this.update(sent, failed);
+        return emails.size();
+    }
+
+    private List<OutboxEmail> readPending() {
+        List<OutboxEmail> emails = new ArrayList<>();
+        try (Connection c = this.provider.getConnection();
+             PreparedStatement stmt = c.prepareStatement(QUERY_PENDING)) {
+            stmt.setMaxRows(BATCH_SIZE);
+            stmt.setInt(1, STATUS_PENDING);
+            stmt.setTimestamp(2, Timestamp.from(Instant.now()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    emails.add(new OutboxEmail(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        return emails;
+    }
+
+    private void update(final List<OutboxEmail> sent, final List<OutboxEmail> failed) {
+        Instant now = Instant.now();
+        try (Connection c = this.provider.getConnection()) {
+            if (!sent.isEmpty()) {
+                try (PreparedStatement delete = c.prepareStatement(QUERY_DELETE)) {
+                    for (OutboxEmail email : sent) {
+                        delete.setLong(1, email.id);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+            }
+            if (!failed.isEmpty()) {
+                try (PreparedStatement retry = c.prepareStatement(QUERY_RETRY)) {
+                    for (OutboxEmail email : failed) {
+                        int attempts = email.attempts + 1;
+                        boolean dead = attempts >= MAXIMUM_ATTEMPTS;
+                        if (dead) {
+                            this.logger.error("Email to {0} not sent after {1} attempts, it will not be retried.", email.recipient, attempts);
+                        }
+                        retry.setInt(1, attempts);
+                        retry.setTimestamp(2, Timestamp.from(now.plus(backoff(attempts))));
+                        retry.setInt(3, dead ? STATUS_DEAD : STATUS_PENDING);
+                        retry.setLong(4, email.id);
+                        retry.addBatch();
+                    }
+                    retry.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Compute the delay before the next attempt.
+     *
+     * @param attempts Number of attempts already done.
+     * @return The delay, doubling with every attempt, up to the maximum.
+     */
+    static Duration backoff(final int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration delay = INITIAL_BACKOFF.multipliedBy(1L << exponent);
+        return delay.compareTo(MAXIMUM_BACKOFF) > 0 ? MAXIMUM_BACKOFF : delay;
+    }
+
+    @Override
+    public final void close() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An email read from the outbox.
+     */
+    private static final class OutboxEmail implements EmailTemplate {
+
+        private final long id;
+
+        private final String recipient;
+
+        private final String title;
+
+        private final String body;
+
+        private final int attempts;
+
+        private OutboxEmail(final long id, final String recipient, final String title, final String body, final int attempts) {
+            this.id = id;
+            this.recipient = recipient;
+            this.title = title;
+            this.body = body;
+            this.attempts = attempts;
+        }
+
+        @Override
+        public String getTitle() {
+            return this.title;
+        }
+
+        @Override
+        public String getBody() {
+            return this.body;
+        }
+
+        @Override
+        public String getEmail() {
+            return this.recipient;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.application.AuthenticationBusyException;
+import be.yildizgames.common.authentication.BCryptEncryptionTool;
+import be.yildizgames.common.authentication.EncryptionTool;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of threads verifying the password hashes, to keep the CPU heavy work out of the message consumers.
+ * The verifications waiting for a thread are kept in a bounded queue, when it is full, the verification is rejected instead of waiting.
+ *
+ * @author Grégory Van den Borre
+ */
+public class HashVerificationPool implements AutoCloseable {
+
+    /**
+     * Default number of verifications waiting for a thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    /**
+     * To verify the passwords.
+     */
+    private final EncryptionTool encryptionTool = new BCryptEncryptionTool();
+
+    /**
+     * Threads running the verifications.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Total time spent by the verifications waiting for a thread, in nanoseconds.
+     */
+    private final LongAdder queueWait = new LongAdder();
+
+    /**
+     * Number of verifications started.
+     */
+    private final LongAdder started = new LongAdder();
+
+    /**
+     * Number of verifications rejected.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Create a new instance.
+     *
+     * @param properties Pool configuration.
+     */
+    public HashVerificationPool(final HashVerificationProperties properties) {
+        this(properties.getHashVerificationThreads(), properties.getHashVerificationQueueSize());
+    }
+
+    /**
+     * Create a new instance with one thread per core.
+     */
+    public HashVerificationPool() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param threads Number of threads.
+     * @param queueSize Number of verifications waiting for a thread.
+     */
+    HashVerificationPool(final int threads, final int queueSize) {
+        super();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "hash-verification-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Check a password against its hash in the pool.
+     *
+     * @param hash Stored password hash.
+     * @param password Password to verify.
+     * @return The future verification result, completed exceptionally with an AuthenticationBusyException if the pool is saturated.
+     */
+    public final CompletableFuture<Boolean> verify(final String hash, final String password) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        try {
+            this.executor.execute(() -> {
+                this.queueWait.add(System.nanoTime() - submitted);
+                this.started.increment();
+                try {
+                    result.complete(this.encryptionTool.check(hash, password));
+                } catch (IllegalArgumentException e) {
+                    result.completeExceptionally(new PersistenceException(e));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            result.completeExceptionally(new AuthenticationBusyException("Password verification pool is full."));
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of threads currently verifying a password.
+     */
+    public final int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * @return The number of verifications waiting for a thread.
+     */
+    public final int getQueueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of verifications rejected since the pool creation.
+     */
+    public final long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * @return The average time a verification waited for a thread.
+     */
+    public final Duration getAverageQueueWait() {
+        long count = this.started.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(this.queueWait.sum() / count);
+    }
+
+    @Override
+    public final void close() {
+        this.executor.shutdown();
+    }
+}
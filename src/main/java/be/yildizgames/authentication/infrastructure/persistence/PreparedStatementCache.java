@@ -0,0 +1,131 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep the prepared statements of the fixed queries for every physical connection, to parse and prepare them only once.
+ * The pooled connection is unwrapped when possible, the statements then survive the connection being given back to the pool and taken again.
+ * A physical connection is used by a single thread at once, the statements of a connection are then never shared between threads.
+ * The statements returned must not be closed by the caller, they are closed with their connection.
+ *
+ * @author Grégory Van den Borre
+ */
+final class PreparedStatementCache {
+
+    /**
+     * Prefix of the cache key of the statements returning the generated keys.
+     */
+    private static final String GENERATED_KEYS_PREFIX = "KEYS:";
+
+    /**
+     * Prepared statements by physical connection, and by query.
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new ConcurrentHashMap<>();
+
+    /**
+     * Provide a prepared statement for a query, with its parameters and batch cleared.
+     *
+     * @param connection Connection to use.
+     * @param query Query to prepare.
+     * @return The prepared statement, not to be closed.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    PreparedStatement prepare(final Connection connection, final String query) throws SQLException {
+        return this.prepare(connection, query, false);
+    }
+
+    /**
+     * Provide a prepared statement for an insert query, returning the generated keys, with its parameters and batch cleared.
+     *
+     * @param connection Connection to use.
+     * @param query Query to prepare.
+     * @return The prepared statement, not to be closed.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    PreparedStatement prepareReturningKeys(final Connection connection, final String query) throws SQLException {
+        return this.prepare(connection, query, true);
+    }
+
+    private PreparedStatement prepare(final Connection connection, final String query, final boolean generatedKeys) throws SQLException {
+        //The same query prepared with and without generated keys must not share its statement.
+        String key = generatedKeys ? GENERATED_KEYS_PREFIX + query : query;
+        Connection physical = unwrap(connection);
+        Map<String, PreparedStatement> perConnection = this.statements.get(physical);
+        if (perConnection == null) {
+            this.removeClosedConnections();
+            perConnection = new HashMap<>();
+            this.statements.put(physical, perConnection);
+        }
+        PreparedStatement statement = perConnection.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = generatedKeys ? physical.prepareStatement(query, Statement.RETURN_GENERATED_KEYS) : physical.prepareStatement(query);
+            perConnection.put(key, statement);
+        } else {
+            //A batch left by a failed execution must not be run with the next one.
+            statement.clearBatch();
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * @return The number of physical connections with cached statements.
+     */
+    int size() {
+        return this.statements.size();
+    }
+
+    /**
+     * Forget the connections closed by the pool, their statements are closed with them.
+     */
+    private void removeClosedConnections() {
+        this.statements.keySet().removeIf(PreparedStatementCache::isClosed);
+    }
+
+    private static boolean isClosed(final Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static Connection unwrap(final Connection connection) throws SQLException {
+        if (connection.isWrapperFor(Connection.class)) {
+            return connection.unwrap(Connection.class);
+        }
+        return connection;
+    }
+}
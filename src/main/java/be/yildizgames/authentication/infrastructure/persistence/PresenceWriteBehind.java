@@ -0,0 +1,267 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.application.PresenceTracker;
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write the ONLINE and LAST_CONNECTION columns of the accounts behind the authentications.
+ * The changes are kept in memory, coalesced by player, the latest state wins, and written with batched updates at a fixed interval and on close.
+ * If a write fails, the changes are kept to be written with the next ones, unless a newer change was received meanwhile.
+ * The players still online after a crash are set offline with a reset at startup, so only one server must run on a database.
+ *
+ * @author Grégory Van den Borre
+ */
+public class PresenceWriteBehind implements PresenceTracker, AutoCloseable {
+
+    private static final String QUERY_CONNECTED = "UPDATE ACCOUNTS SET ONLINE = ?, LAST_CONNECTION = ? WHERE ID = ?";
+
+    private static final String QUERY_ONLINE = "UPDATE ACCOUNTS SET ONLINE = ? WHERE ID = ?";
+
+    private static final String QUERY_RESET_ONLINE = "UPDATE ACCOUNTS SET ONLINE = ? WHERE ONLINE = ?";
+
+    /**
+     * Maximum number of updates sent in one batch.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * To connect to the database.
+     */
+    private final DataBaseConnectionProvider provider;
+
+    /**
+     * Changes waiting to be written, by player id.
+     */
+    private final Map<Integer, PresenceChange> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Run the writes.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Create a new instance, the writes start immediately.
+     *
+     * @param provider To connect to the database.
+     * @param properties Write interval.
+     */
+    public PresenceWriteBehind(final DataBaseConnectionProvider provider, final PresenceProperties properties) {
+        super();
+        Objects.requireNonNull(provider);
+        Objects.requireNonNull(properties);
+        this.provider = provider;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getPresenceFlushInterval();
+        this.executor.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set offline every player still online in the database, the sessions do not survive a restart.
+     * To call at startup, before any authentication.
+     *
+     * @return The number of players set offline.
+     */
+    public final int resetOnline() {
+        try (Connection c = this.provider.getConnection();
+             PreparedStatement stmt = c.prepareStatement(QUERY_RESET_ONLINE)) {
+            stmt.setBoolean(1, false);
+            stmt.setBoolean(2, true);
+            int count = stmt.executeUpdate();
+            this.logger.info("{0} players set offline at startup.", count);
+            return count;
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    @Override
+    public final void connected(final PlayerId id) {
+        this.pending.merge(id.value, new PresenceChange(true, Timestamp.from(Instant.now())), PresenceChange::merge);
+    }
+
+    @Override
+    public final void disconnected(final PlayerId id) {
+        this.pending.merge(id.value, new PresenceChange(false, null), PresenceChange::merge);
+    }
+
+    /**
+     * @return The number of players with a change waiting to be written.
+     */
+    public final int getPendingCount() {
+        return this.pending.size();
+    }
+
+    private void run() {
+        try {
+            this.flush();
+        } catch (PersistenceException e) {
+            this.logger.error("Error writing the presence changes, they will be retried", e);
+        }
+    }
+
+    /**
+     * Write the waiting changes.
+     *
+     * @return The number of players updated.
+     */
+    final int flush() {
+        if (this.pending.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, PresenceChange> changes = new HashMap<>();
+        for (Integer id : new ArrayList<>(this.pending.keySet())) {
+            PresenceChange change = this.pending.remove(id);
+            if (change != null) {
+                changes.put(id, change);
+            }
+        }
+        try {
+            this.write(changes);
+        } catch (SQLException e) {
+            //The newer changes, received while writing, win over the failed ones.
+            changes.forEach((id, change) -> this.pending.merge(id, change, (newer, failed) -> failed.merge(newer)));
+            throw new PersistenceException(e);
+        }
+        this.logger.debug("{0} presence changes written.", changes.size());
+        return changes.size();
+    }
+
+    private void write(final Map<Integer, PresenceChange> changes) throws SQLException {
+        try (Connection c = this.provider.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement connected = c.prepareStatement(QUERY_CONNECTED);
+                 PreparedStatement online = c.prepareStatement(QUERY_ONLINE)) {
+                int connectedCount = 0;
+                int onlineCount = 0;
+                for (Map.Entry<Integer, PresenceChange> entry : changes.entrySet()) {
+                    PresenceChange change = entry.getValue();
+                    if (change.lastConnection != null) {
+                        connected.setBoolean(1, change.online);
+                        connected.setTimestamp(2, change.lastConnection);
+                        connected.setLong(3, entry.getKey());
+                        connected.addBatch();
+                        if (++connectedCount % BATCH_SIZE == 0) {
+                            connected.executeBatch();
+                        }
+                    } else {
+                        online.setBoolean(1, change.online);
+                        online.setLong(2, entry.getKey());
+                        online.addBatch();
+                        if (++onlineCount % BATCH_SIZE == 0) {
+                            online.executeBatch();
+                        }
+                    }
+                }
+                if (connectedCount % BATCH_SIZE != 0) {
+                    connected.executeBatch();
+                }
+                if (onlineCount % BATCH_SIZE != 0) {
+                    online.executeBatch();
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Stop the scheduled writes and write the waiting changes.
+     */
+    @Override
+    public final void close() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.run();
+    }
+
+    /**
+     * Presence state of a player waiting to be written.
+     */
+    static final class PresenceChange {
+
+        /**
+         * Connection state.
+         */
+        final boolean online;
+
+        /**
+         * Last connection time, null if the player did not connect since the last write.
+         */
+        final Timestamp lastConnection;
+
+        PresenceChange(final boolean online, final Timestamp lastConnection) {
+            super();
+            this.online = online;
+            this.lastConnection = lastConnection;
+        }
+
+        /**
+         * Coalesce this change with a newer one, the newer state wins, the last connection time is kept if the newer change has none.
+         *
+         * @param newer Newer change.
+         * @return The coalesced change.
+         */
+        PresenceChange merge(final PresenceChange newer) {
+            return new PresenceChange(newer.online, newer.lastConnection == null ? this.lastConnection : newer.lastConnection);
+        }
+    }
+}
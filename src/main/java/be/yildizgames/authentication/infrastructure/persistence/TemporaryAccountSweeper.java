@@ -0,0 +1,255 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remove the temporary accounts not confirmed in time.
+ * The expired accounts are deleted by chunks, each in its own short transaction, to never lock the table for long.
+ * The removed logins and emails are also removed from the existence filter.
+ * Only one sweeper must run on a database.
+ *
+ * @author Grégory Van den Borre
+ */
+public class TemporaryAccountSweeper implements AutoCloseable {
+
+    private static final String QUERY_EXPIRED = "SELECT ID, LOGIN, EMAIL FROM TEMP_ACCOUNTS WHERE DATE < ? ORDER BY DATE";
+
+    private static final String QUERY_DELETE = "DELETE FROM TEMP_ACCOUNTS WHERE ID = ? AND DATE < ?";
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * To connect to the database.
+     */
+    private final DataBaseConnectionProvider provider;
+
+    /**
+     * Filter to update when an account is removed.
+     */
+    private final AccountExistenceFilter existenceFilter;
+
+    /**
+     * Time a temporary account can be confirmed.
+     */
+    private final Duration retention;
+
+    /**
+     * Time between two sweeps.
+     */
+    private final Duration interval;
+
+    /**
+     * Maximum number of accounts removed in one transaction.
+     */
+    private final int chunkSize;
+
+    /**
+     * Run the sweeps.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Create a new instance, the sweeper is not started.
+     *
+     * @param provider To connect to the database.
+     * @param existenceFilter Filter to update when an account is removed.
+     * @param properties Retention, interval and chunk size.
+     */
+    public TemporaryAccountSweeper(final DataBaseConnectionProvider provider, final AccountExistenceFilter existenceFilter, final TemporaryAccountSweeperProperties properties) {
+        this(provider, existenceFilter, Duration.ofHours(properties.getTemporaryAccountRetention()),
+                Duration.ofMinutes(properties.getTemporaryAccountSweepInterval()), properties.getTemporaryAccountSweepChunkSize());
+    }
+
+    /**
+     * Create a new instance, the sweeper is not started.
+     *
+     * @param provider To connect to the database.
+     * @param existenceFilter Filter to update when an account is removed.
+     * @param retention Time a temporary account can be confirmed.
+     * @param interval Time between two sweeps.
+     * @param chunkSize Maximum number of accounts removed in one transaction.
+     */
+    TemporaryAccountSweeper(final DataBaseConnectionProvider provider, final AccountExistenceFilter existenceFilter, final Duration retention, final Duration interval, final int chunkSize) {
+        super();
+        Objects.requireNonNull(provider);
+        Objects.requireNonNull(existenceFilter);
+        Objects.requireNonNull(retention);
+        Objects.requireNonNull(interval);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.provider = provider;
+        this.existenceFilter = existenceFilter;
+        this.retention = retention;
+        this.interval = interval;
+        this.chunkSize = chunkSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "temporary-account-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start removing the expired accounts, the first sweep is immediate.
+     */
+    public final void start() {
+        this.executor.scheduleWithFixedDelay(this::run, 0, this.interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            this.sweep();
+        } catch (PersistenceException e) {
+            this.logger.error("Error removing the expired temporary accounts", e);
+        }
+    }
+
+    /**
+     * Remove all the accounts expired now, chunk by chunk.
+     *
+     * @return The number of accounts removed.
+     */
+    final int sweep() {
+        long start = System.nanoTime();
+        Timestamp limit = Timestamp.from(Instant.now().minus(this.retention));
+        int total = 0;
+        int removed;
+        do {
+            removed = this.sweepChunk(limit);
+            total += Math.max(removed, 0);
+        } while (removed >= 0 && !this.executor.isShutdown());
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (total > 0) {
+            this.logger.info("{0} expired temporary accounts removed in {1} ms.", total, duration);
+        } else {
+            this.logger.debug("No expired temporary account to remove, checked in {0} ms.", duration);
+        }
+        return total;
+    }
+
+    /**
+     * Remove a chunk of expired accounts in one transaction.
+     *
+     * @param limit Accounts created before are expired.
+     * @return The number of accounts known to be removed, -1 when none are expired.
+     */
+    private int sweepChunk(final Timestamp limit) {
+        List<ExpiredAccount> expired = new ArrayList<>(this.chunkSize);
+        try (Connection c = this.provider.getConnection()) {
+            try (PreparedStatement select = c.prepareStatement(QUERY_EXPIRED)) {
+                select.setMaxRows(this.chunkSize);
+                select.setTimestamp(1, limit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        expired.add(new ExpiredAccount(rs.getLong(1), rs.getString(2), rs.getString(3)));
+                    }
+                }
+            }
+            if (expired.isEmpty()) {
+                return -1;
+            }
+            int[] results;
+            c.setAutoCommit(false);
+            try (PreparedStatement delete = c.prepareStatement(QUERY_DELETE)) {
+                for (ExpiredAccount account : expired) {
+                    delete.setLong(1, account.id);
+                    delete.setTimestamp(2, limit);
+                    delete.addBatch();
+                }
+                results = delete.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+            //Only the accounts really deleted leave the filter, the others may have been confirmed meanwhile, keeping their login and email.
+            //When the driver does not report the count, the account stays in the filter, it only costs a false positive.
+            int removed = 0;
+            for (int i = 0; i < expired.size(); i++) {
+                if (results[i] > 0) {
+                    this.existenceFilter.remove(expired.get(i).login, expired.get(i).email);
+                    removed++;
+                }
+            }
+            return removed;
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    @Override
+    public final void close() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A temporary account to remove.
+     */
+    private static final class ExpiredAccount {
+
+        private final long id;
+
+        private final String login;
+
+        private final String email;
+
+        private ExpiredAccount(final long id, final String login, final String email) {
+            super();
+            this.id = id;
+            this.login = login;
+            this.email = email;
+        }
+    }
+}
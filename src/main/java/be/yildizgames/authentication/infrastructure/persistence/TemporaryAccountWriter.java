@@ -0,0 +1,349 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
+import be.yildizgames.common.logging.Logger;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write the temporary accounts and their confirmation email with group commit.
+ * The accounts to write are queued, a single thread takes them as soon as possible, up to the batch size,
+ * waiting at most the batch delay for more accounts, and writes them all in one transaction.
+ * If the transaction fails, the accounts are written again one by one, so an invalid account does not fail the others.
+ *
+ * @author Grégory Van den Borre
+ */
+public class TemporaryAccountWriter implements AutoCloseable {
+
+    private static final String QUERY_INSERT_TEMP_ACCOUNT = "INSERT INTO TEMP_ACCOUNTS (LOGIN, PASSWORD, EMAIL, CHECK_VALUE, DATE) VALUES (?,?,?,?,?)";
+
+    private static final String QUERY_INSERT_OUTBOX = "INSERT INTO EMAIL_OUTBOX (RECIPIENT, TITLE, BODY, STATUS, NEXT_ATTEMPT) VALUES (?,?,?,?,?)";
+
+    /**
+     * Default maximum number of accounts written in one transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * Default maximum time an account waits for other ones, in milliseconds.
+     */
+    public static final long DEFAULT_BATCH_DELAY = 5;
+
+    /**
+     * Time the writer thread waits for an account before checking if it is closed, in milliseconds.
+     */
+    private static final long IDLE_POLL = 100;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(this);
+
+    /**
+     * To connect to the database.
+     */
+    private final DataBaseConnectionProvider provider;
+
+    /**
+     * To prepare the queries only once per connection.
+     */
+    private final PreparedStatementCache statements = new PreparedStatementCache();
+
+    /**
+     * Accounts waiting to be written.
+     */
+    private final BlockingQueue<PendingAccount> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Maximum number of accounts in one transaction.
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum time an account waits for other ones, in nanoseconds.
+     */
+    private final long batchDelay;
+
+    /**
+     * Thread writing the accounts.
+     */
+    private final Thread thread;
+
+    /**
+     * False once closed, the queued accounts are still written.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Create a new writer with the default batch size and delay.
+     *
+     * @param provider To connect to the database.
+     */
+    public TemporaryAccountWriter(final DataBaseConnectionProvider provider) {
+        this(provider, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_DELAY);
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param provider To connect to the database.
+     * @param properties Batch size and delay.
+     */
+    public TemporaryAccountWriter(final DataBaseConnectionProvider provider, final TemporaryAccountWriterProperties properties) {
+        this(provider, properties.getTemporaryAccountBatchSize(), properties.getTemporaryAccountBatchDelay());
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param provider To connect to the database.
+     * @param batchSize Maximum number of accounts in one transaction.
+     * @param batchDelay Maximum time an account waits for other ones, in milliseconds.
+     */
+    TemporaryAccountWriter(final DataBaseConnectionProvider provider, final int batchSize, final long batchDelay) {
+        super();
+        Objects.requireNonNull(provider);
+        if (batchSize < 1 || batchDelay < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and batch delay not negative.");
+        }
+        this.provider = provider;
+        this.batchSize = batchSize;
+        this.batchDelay = TimeUnit.MILLISECONDS.toNanos(batchDelay);
+        this.thread = new Thread(this::run, "temporary-account-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a temporary account and its confirmation email to be written.
+     *
+     * @param login Account login.
+     * @param password Encrypted password.
+     * @param email Account email.
+     * @param token Token to confirm the account.
+     * @param date Creation date.
+     * @param mail Confirmation email to send.
+     * @return The future completed once the account is committed, or exceptionally with a PersistenceException.
+     */
+    public final CompletableFuture<Void> write(String login, String password, String email, String token, Timestamp date, EmailTemplate mail) {
+        PendingAccount account = new PendingAccount(login, password, email, token, date, mail);
+        if (!this.running) {
+            account.result.completeExceptionally(new PersistenceException(new SQLException("Temporary account writer is closed.")));
+            return account.result;
+        }
+        this.queue.add(account);
+        return account.result;
+    }
+
+    private void run() {
+        List<PendingAccount> batch = new ArrayList<>(this.batchSize);
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                PendingAccount first = this.queue.poll(IDLE_POLL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.fill(batch);
+                this.flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.flush(batch);
+                return;
+            } catch (RuntimeException e) {
+                this.logger.error("Unexpected error while writing temporary accounts", e);
+                batch.forEach(a -> a.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Take the queued accounts up to the batch size, waiting at most the batch delay for them.
+     *
+     * @param batch Batch to fill.
+     * @throws InterruptedException If the writer is interrupted while waiting.
+     */
+    private void fill(List<PendingAccount> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + this.batchDelay;
+        this.queue.drainTo(batch, this.batchSize - batch.size());
+        while (batch.size() < this.batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingAccount next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            this.queue.drainTo(batch, this.batchSize - batch.size());
+        }
+    }
+
+    /**
+     * Write a batch and complete its futures, if the batch fails, its accounts are retried one by one.
+     *
+     * @param batch Accounts to write.
+     */
+    private void flush(List<PendingAccount> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            this.insert(batch);
+            batch.forEach(a -> a.result.complete(null));
+            this.logger.debug("{0} temporary accounts written.", batch.size());
+            return;
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(new PersistenceException(e));
+                return;
+            }
+            this.logger.warning("Temporary account batch of {0} failed, writing them one by one: {1}", batch.size(), e.getMessage());
+        }
+        for (PendingAccount account : batch) {
+            try {
+                this.insert(Collections.singletonList(account));
+                account.result.complete(null);
+            } catch (SQLException e) {
+                account.result.completeExceptionally(new PersistenceException(e));
+            }
+        }
+    }
+
+    /**
+     * Insert the accounts and their email in a single transaction.
+     *
+     * @param accounts Accounts to insert.
+     * @throws SQLException If the transaction failed, it is rolled back.
+     */
+    private void insert(List<PendingAccount> accounts) throws SQLException {
+        try (Connection c = this.provider.getConnection()) {
+            c.setAutoCommit(false);
+            PreparedStatement temp = null;
+            PreparedStatement outbox = null;
+            try {
+                temp = this.statements.prepare(c, QUERY_INSERT_TEMP_ACCOUNT);
+                outbox = this.statements.prepare(c, QUERY_INSERT_OUTBOX);
+                for (PendingAccount account : accounts) {
+                    temp.setString(1, account.login);
+                    temp.setString(2, account.password);
+                    temp.setString(3, account.email);
+                    temp.setString(4, account.token);
+                    temp.setTimestamp(5, account.date);
+                    temp.addBatch();
+                    outbox.setString(1, account.mail.getEmail());
+                    outbox.setString(2, account.mail.getTitle());
+                    outbox.setString(3, account.mail.getBody());
+                    outbox.setInt(4, EmailOutboxRelay.STATUS_PENDING);
+                    outbox.setTimestamp(5, account.date);
+                    outbox.addBatch();
+                }
+                temp.executeBatch();
+                outbox.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                //The statements are cached, the rows of the failed batch must not be sent again with the next one.
+                clearBatch(temp);
+                clearBatch(outbox);
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void clearBatch(PreparedStatement statement) throws SQLException {
+        if (statement != null && !statement.isClosed()) {
+            statement.clearBatch();
+        }
+    }
+
+    /**
+     * Stop accepting accounts, and wait for the queued ones to be written, the ones still queued after are failed.
+     */
+    @Override
+    public final void close() {
+        this.running = false;
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingAccount account;
+        while ((account = this.queue.poll()) != null) {
+            account.result.completeExceptionally(new PersistenceException(new SQLException("Temporary account writer is closed.")));
+        }
+    }
+
+    /**
+     * Temporary account waiting to be written.
+     */
+    private static final class PendingAccount {
+
+        private final String login;
+
+        private final String password;
+
+        private final String email;
+
+        private final String token;
+
+        private final Timestamp date;
+
+        private final EmailTemplate mail;
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingAccount(String login, String password, String email, String token, Timestamp date, EmailTemplate mail) {
+            super();
+            this.login = Objects.requireNonNull(login);
+            this.password = Objects.requireNonNull(password);
+            this.email = Objects.requireNonNull(email);
+            this.token = Objects.requireNonNull(token);
+            this.date = Objects.requireNonNull(date);
+            this.mail = Objects.requireNonNull(mail);
+        }
+    }
+}
@@ -26,12 +26,23 @@ package be.yildizgames.authentication.main;
 
 import be.yildizgames.authentication.application.AccountCreationManager;
 import be.yildizgames.authentication.application.AuthenticationManager;
+import be.yildizgames.authentication.application.CoalescingAuthenticator;
+import be.yildizgames.authentication.application.CredentialCache;
+import be.yildizgames.authentication.application.ExpiringSessionStore;
+import be.yildizgames.authentication.application.FailureTracker;
 import be.yildizgames.authentication.configuration.Configuration;
 import be.yildizgames.authentication.configuration.DefaultConfigProperties;
+import be.yildizgames.authentication.infrastructure.AccountCreatedEventPublisher;
 import be.yildizgames.authentication.infrastructure.AsynchronousAuthenticationServer;
-import be.yildizgames.authentication.infrastructure.io.mail.JavaMailEmailService;
+import be.yildizgames.authentication.infrastructure.io.mail.JavaMailDispatcher;
+import be.yildizgames.authentication.infrastructure.persistence.AccountExistenceFilter;
 import be.yildizgames.authentication.infrastructure.persistence.DataBaseAuthenticator;
 import be.yildizgames.authentication.infrastructure.persistence.DatabaseAccountCreator;
+import be.yildizgames.authentication.infrastructure.persistence.EmailOutboxRelay;
+import be.yildizgames.authentication.infrastructure.persistence.HashVerificationPool;
+import be.yildizgames.authentication.infrastructure.persistence.PresenceWriteBehind;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountSweeper;
+import be.yildizgames.authentication.infrastructure.persistence.TemporaryAccountWriter;
 import be.yildizgames.common.application.Application;
 import be.yildizgames.common.authentication.protocol.Queues;
 import be.yildizgames.common.logging.Logger;
@@ -83,11 +94,39 @@ public final class AuthenticationEntryPoint {
                 Broker broker = Broker.getBroker(config);
                 BrokerMessageDestination accountCreatedQueue = broker.registerQueue(Queues.CREATE_ACCOUNT_CONFIRMATION_RESPONSE.getName());
                 BrokerMessageProducer producer = accountCreatedQueue.createProducer();
-                AuthenticationManager manager = new AuthenticationManager(new DataBaseAuthenticator(provider));
+                CredentialCache credentialCache = new CredentialCache(config);
+                JavaMailDispatcher emailDispatcher = new JavaMailDispatcher(config);
+                EmailOutboxRelay outboxRelay = new EmailOutboxRelay(provider, emailDispatcher);
+                outboxRelay.start();
+                AccountExistenceFilter existenceFilter = new AccountExistenceFilter(config);
+                existenceFilter.load(provider);
+                TemporaryAccountSweeper sweeper = new TemporaryAccountSweeper(provider, existenceFilter, config);
+                sweeper.start();
+                PresenceWriteBehind presence = new PresenceWriteBehind(provider, config);
+                //No session survives a restart, the players left online by a crash are set offline before serving any request.
+                presence.resetOnline();
+                ExpiringSessionStore sessionStore = new ExpiringSessionStore(config, presence);
+                AuthenticationManager manager = new AuthenticationManager(
+                        new CoalescingAuthenticator(new DataBaseAuthenticator(provider, new HashVerificationPool(config), credentialCache)),
+                        sessionStore,
+                        new FailureTracker(config),
+                        presence);
+                AccountCreatedEventPublisher eventPublisher = new AccountCreatedEventPublisher(producer, config);
+                TemporaryAccountWriter temporaryAccountWriter = new TemporaryAccountWriter(provider, config);
                 AccountCreationManager accountCreationManager =
-                        new AccountCreationManager(new DatabaseAccountCreator(provider, producer), new JavaMailEmailService(config), config);
+                        new AccountCreationManager(new DatabaseAccountCreator(provider, eventPublisher, credentialCache, existenceFilter, temporaryAccountWriter, config), config);
                 logger.info("Preparing the messaging system");
-                new AsynchronousAuthenticationServer(broker, accountCreationManager, manager);
+                AsynchronousAuthenticationServer server = new AsynchronousAuthenticationServer(broker, accountCreationManager, manager, config);
+                //The shutdown hooks run concurrently, a single one closes everything, each part after the ones feeding it.
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> closeAll(logger,
+                        server,
+                        sessionStore,
+                        sweeper,
+                        temporaryAccountWriter,
+                        outboxRelay,
+                        emailDispatcher,
+                        presence,
+                        eventPublisher), "authentication-shutdown"));
                 logger.info("Server running");
             }
         } catch (Exception e) {
@@ -97,4 +136,20 @@ public final class AuthenticationEntryPoint {
         }
     }
 
+    /**
+     * Close the resources in the given order, a failure is logged and does not prevent the next ones to be closed.
+     *
+     * @param logger Logger for the failures.
+     * @param resources Resources to close.
+     */
+    private static void closeAll(final Logger logger, final AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.error(e);
+            }
+        }
+    }
+
 }
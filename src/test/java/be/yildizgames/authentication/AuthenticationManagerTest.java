@@ -24,6 +24,7 @@
 
 package be.yildizgames.authentication;
 
+import be.yildizgames.authentication.application.AuthenticationBusyException;
 import be.yildizgames.authentication.application.AuthenticationManager;
 import be.yildizgames.authentication.application.Authenticator;
 import be.yildizgames.common.authentication.Credentials;
@@ -34,6 +35,13 @@ import be.yildizgames.common.model.PlayerId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -106,6 +114,33 @@ public class AuthenticationManagerTest {
         }
     }
 
+    @Test
+    public void testAuthenticateBanConcurrent() throws Exception {
+        AuthenticationManager m = new AuthenticationManager(new AuthenticatorMock(false, false));
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        m.authenticate(Credentials.unchecked("test", "test1"));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        this.thenResultIsBanned(m.authenticate(Credentials.unchecked("test", "test1")));
+    }
+
+    @Test
+    public void testAuthenticateBusy() {
+        Assertions.assertThrows(AuthenticationBusyException.class, () -> new AuthenticationManager(new BusyAuthenticator()).authenticate(Credentials.unchecked("test", "test1")));
+    }
+
     @Test
     public void testGetAuthenticatedNotFound() {
         AuthenticationManager m = new AuthenticationManager(new AuthenticatorMock(true, false));
@@ -169,4 +204,17 @@ public class AuthenticationManagerTest {
         }
 
     }
+
+    private static class BusyAuthenticator implements Authenticator {
+
+        @Override
+        public TokenVerification getPasswordForUser(Credentials credentials) {
+            throw new AuthenticationBusyException("busy");
+        }
+
+        @Override
+        public CompletableFuture<TokenVerification> getPasswordForUserAsync(Credentials credentials) {
+            return CompletableFuture.failedFuture(new AuthenticationBusyException("busy"));
+        }
+    }
 }
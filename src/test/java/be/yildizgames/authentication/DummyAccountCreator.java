@@ -26,6 +26,7 @@ package be.yildizgames.authentication;
 
 import be.yildizgames.authentication.application.AccountCreator;
 import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
 import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
 
 import java.util.UUID;
@@ -45,7 +46,7 @@ public class DummyAccountCreator implements AccountCreator {
     }
 
     @Override
-    public void create(TemporaryAccountDto dto, UUID token) {
+    public void create(TemporaryAccountDto dto, UUID token, EmailTemplate email) {
         //Does nothing.
     }
 
@@ -0,0 +1,108 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.Credentials;
+import be.yildizgames.common.authentication.protocol.TokenVerification;
+import be.yildizgames.common.model.PlayerId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class CoalescingAuthenticatorTest {
+
+    @Test
+    public void identicalRequestsShareVerification() {
+        PendingAuthenticator delegate = new PendingAuthenticator();
+        CoalescingAuthenticator authenticator = new CoalescingAuthenticator(delegate);
+        CompletableFuture<TokenVerification> first = authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        CompletableFuture<TokenVerification> second = authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        Assertions.assertEquals(1, delegate.pending.size());
+        Assertions.assertEquals(1, authenticator.getCoalescedCount());
+        delegate.pending.get(0).complete(new TokenVerification(PlayerId.valueOf(1), true));
+        Assertions.assertTrue(first.join().authenticated);
+        Assertions.assertTrue(second.join().authenticated);
+        Assertions.assertEquals(0, authenticator.getInFlightCount());
+    }
+
+    @Test
+    public void differentPasswordsAreNotShared() {
+        PendingAuthenticator delegate = new PendingAuthenticator();
+        CoalescingAuthenticator authenticator = new CoalescingAuthenticator(delegate);
+        authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "other"));
+        Assertions.assertEquals(2, delegate.pending.size());
+        Assertions.assertEquals(0, authenticator.getCoalescedCount());
+    }
+
+    @Test
+    public void completedVerificationIsNotReused() {
+        PendingAuthenticator delegate = new PendingAuthenticator();
+        CoalescingAuthenticator authenticator = new CoalescingAuthenticator(delegate);
+        authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        delegate.pending.get(0).complete(new TokenVerification(PlayerId.valueOf(1), false));
+        authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        Assertions.assertEquals(2, delegate.pending.size());
+    }
+
+    @Test
+    public void failureIsShared() {
+        PendingAuthenticator delegate = new PendingAuthenticator();
+        CoalescingAuthenticator authenticator = new CoalescingAuthenticator(delegate);
+        CompletableFuture<TokenVerification> first = authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        CompletableFuture<TokenVerification> second = authenticator.getPasswordForUserAsync(Credentials.unchecked("test", "pwd"));
+        delegate.pending.get(0).completeExceptionally(new AuthenticationBusyException("busy"));
+        CompletionException error = Assertions.assertThrows(CompletionException.class, first::join);
+        Assertions.assertTrue(error.getCause() instanceof AuthenticationBusyException);
+        Assertions.assertTrue(second.isCompletedExceptionally());
+        Assertions.assertEquals(0, authenticator.getInFlightCount());
+    }
+
+    private static class PendingAuthenticator implements Authenticator {
+
+        private final List<CompletableFuture<TokenVerification>> pending = new ArrayList<>();
+
+        @Override
+        public TokenVerification getPasswordForUser(Credentials credentials) {
+            return this.getPasswordForUserAsync(credentials).join();
+        }
+
+        @Override
+        public CompletableFuture<TokenVerification> getPasswordForUserAsync(Credentials credentials) {
+            CompletableFuture<TokenVerification> future = new CompletableFuture<>();
+            this.pending.add(future);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompiledEmailTemplateTest {
+
+    @Test
+    public void happyFlow() {
+        CompiledEmailTemplate template = new CompiledEmailTemplate("title##Dear ${0}, your token is ${2} for ${1}.");
+        Assertions.assertEquals("title", template.getTitle());
+        Assertions.assertEquals("Dear a, your token is c for b.", template.render("a", "b", "c"));
+    }
+
+    @Test
+    public void variableUsedTwice() {
+        CompiledEmailTemplate template = new CompiledEmailTemplate("title##${0}${0}");
+        Assertions.assertEquals("aa", template.render("a"));
+    }
+
+    @Test
+    public void unknownVariableKept() {
+        CompiledEmailTemplate template = new CompiledEmailTemplate("title##${0} ${5} ${a} ${");
+        Assertions.assertEquals("x ${5} ${a} ${", template.render("x"));
+    }
+
+    @Test
+    public void noSeparator() {
+        Assertions.assertThrows(EmailException.class, () -> new CompiledEmailTemplate("title ${0}"));
+    }
+}
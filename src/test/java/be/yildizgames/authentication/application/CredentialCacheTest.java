@@ -0,0 +1,126 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.UserNotFoundException;
+import be.yildizgames.common.model.PlayerId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class CredentialCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CredentialCache givenACache(int maximumSize) {
+        return new CredentialCache(Duration.ofSeconds(10), maximumSize, clock::get);
+    }
+
+    private CachedCredential load(String login) {
+        return new CachedCredential(PlayerId.valueOf(loads.incrementAndGet()), "hash_" + login);
+    }
+
+    @Nested
+    public class Get {
+
+        @Test
+        public void happyFlow() throws UserNotFoundException {
+            CredentialCache cache = givenACache(10);
+            CachedCredential first = cache.get("test", CredentialCacheTest.this::load);
+            CachedCredential second = cache.get("test", CredentialCacheTest.this::load);
+            Assertions.assertSame(first, second);
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(1, cache.getHitCount());
+            Assertions.assertEquals(1, cache.getMissCount());
+        }
+
+        @Test
+        public void expired() throws UserNotFoundException {
+            CredentialCache cache = givenACache(10);
+            cache.get("test", CredentialCacheTest.this::load);
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+            cache.get("test", CredentialCacheTest.this::load);
+            Assertions.assertEquals(2, loads.get());
+            Assertions.assertEquals(1, cache.getEvictionCount());
+        }
+
+        @Test
+        public void notFoundIsNotCached() {
+            CredentialCache cache = givenACache(10);
+            CredentialCache.CredentialLoader loader = l -> {
+                loads.incrementAndGet();
+                throw new UserNotFoundException();
+            };
+            Assertions.assertThrows(UserNotFoundException.class, () -> cache.get("test", loader));
+            Assertions.assertThrows(UserNotFoundException.class, () -> cache.get("test", loader));
+            Assertions.assertEquals(2, loads.get());
+            Assertions.assertEquals(0, cache.size());
+        }
+
+        @Test
+        public void maximumSizeReached() throws UserNotFoundException {
+            CredentialCache cache = givenACache(2);
+            cache.get("a", CredentialCacheTest.this::load);
+            cache.get("b", CredentialCacheTest.this::load);
+            cache.get("c", CredentialCacheTest.this::load);
+            Assertions.assertEquals(2, cache.size());
+            Assertions.assertEquals(1, cache.getEvictionCount());
+        }
+    }
+
+    @Nested
+    public class Invalidate {
+
+        @Test
+        public void happyFlow() throws UserNotFoundException {
+            CredentialCache cache = givenACache(10);
+            cache.get("test", CredentialCacheTest.this::load);
+            cache.invalidate("test");
+            cache.get("test", CredentialCacheTest.this::load);
+            Assertions.assertEquals(2, loads.get());
+        }
+
+        @Test
+        public void duringLoad() throws UserNotFoundException {
+            CredentialCache cache = givenACache(10);
+            cache.get("test", l -> {
+                cache.invalidate(l);
+                return load(l);
+            });
+            Assertions.assertEquals(0, cache.size());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import be.yildizgames.common.authentication.Token;
+import be.yildizgames.common.model.PlayerId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ExpiringSessionStoreTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ExpiringSessionStore givenAStore(int maximumSize) {
+        return new ExpiringSessionStore(Duration.ofSeconds(10), Duration.ofSeconds(60), maximumSize, clock::get);
+    }
+
+    @Nested
+    public class Get {
+
+        @Test
+        public void happyFlow() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                Token token = Token.authenticated(PlayerId.valueOf(5), 0, 1);
+                store.put(PlayerId.valueOf(5), token);
+                Assertions.assertEquals(token, store.get(PlayerId.valueOf(5)));
+            }
+        }
+
+        @Test
+        public void notExisting() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                Assertions.assertEquals(Token.notFound(), store.get(PlayerId.valueOf(5)));
+            }
+        }
+
+        @Test
+        public void idleExpired() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(10).toNanos());
+                Assertions.assertEquals(Token.notFound(), store.get(PlayerId.valueOf(5)));
+                Assertions.assertEquals(0, store.size());
+            }
+        }
+
+        @Test
+        public void accessExtendsIdleTime() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(8).toNanos());
+                Assertions.assertTrue(store.get(PlayerId.valueOf(5)).isAuthenticated());
+                clock.addAndGet(Duration.ofSeconds(8).toNanos());
+                Assertions.assertTrue(store.get(PlayerId.valueOf(5)).isAuthenticated());
+            }
+        }
+
+        @Test
+        public void lifetimeExpired() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                for (int i = 0; i < 12; i++) {
+                    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+                    store.get(PlayerId.valueOf(5));
+                }
+                Assertions.assertEquals(Token.notFound(), store.get(PlayerId.valueOf(5)));
+            }
+        }
+    }
+
+    @Nested
+    public class RemoveExpired {
+
+        @Test
+        public void happyFlow() {
+            try (ExpiringSessionStore store = givenAStore(10)) {
+                store.put(PlayerId.valueOf(1), Token.authenticated(PlayerId.valueOf(1), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(5).toNanos());
+                store.put(PlayerId.valueOf(2), Token.authenticated(PlayerId.valueOf(2), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(5).toNanos());
+                store.removeExpired();
+                Assertions.assertEquals(1, store.size());
+                Assertions.assertTrue(store.get(PlayerId.valueOf(2)).isAuthenticated());
+            }
+        }
+    }
+
+    @Nested
+    public class MaximumSize {
+
+        @Test
+        public void sizeStaysBoundedWithManyLogins() {
+            try (ExpiringSessionStore store = givenAStore(1_000)) {
+                for (int i = 0; i < 1_000_000; i++) {
+                    clock.incrementAndGet();
+                    store.put(PlayerId.valueOf(i), Token.authenticated(PlayerId.valueOf(i), 0, 1));
+                }
+                Assertions.assertEquals(1_000, store.size());
+                Assertions.assertTrue(store.get(PlayerId.valueOf(999_999)).isAuthenticated());
+            }
+        }
+
+        @Test
+        public void invalidSize() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> givenAStore(0));
+        }
+    }
+
+    @Nested
+    public class Presence {
+
+        private final List<PlayerId> disconnected = new ArrayList<>();
+
+        private ExpiringSessionStore givenAStoreWithPresence(int maximumSize) {
+            return new ExpiringSessionStore(Duration.ofSeconds(10), Duration.ofSeconds(60), maximumSize, clock::get, new PresenceTracker() {
+                @Override
+                public void connected(PlayerId id) {
+                    //Not notified by the store.
+                }
+
+                @Override
+                public void disconnected(PlayerId id) {
+                    disconnected.add(id);
+                }
+            });
+        }
+
+        @Test
+        public void expiredWhenRead() {
+            try (ExpiringSessionStore store = givenAStoreWithPresence(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(10).toNanos());
+                store.get(PlayerId.valueOf(5));
+                Assertions.assertEquals(List.of(PlayerId.valueOf(5)), disconnected);
+            }
+        }
+
+        @Test
+        public void expiredByCleanup() {
+            try (ExpiringSessionStore store = givenAStoreWithPresence(10)) {
+                store.put(PlayerId.valueOf(1), Token.authenticated(PlayerId.valueOf(1), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(5).toNanos());
+                store.put(PlayerId.valueOf(2), Token.authenticated(PlayerId.valueOf(2), 0, 1));
+                clock.addAndGet(Duration.ofSeconds(5).toNanos());
+                store.removeExpired();
+                Assertions.assertEquals(List.of(PlayerId.valueOf(1)), disconnected);
+            }
+        }
+
+        @Test
+        public void evicted() {
+            try (ExpiringSessionStore store = givenAStoreWithPresence(1)) {
+                store.put(PlayerId.valueOf(1), Token.authenticated(PlayerId.valueOf(1), 0, 1));
+                clock.incrementAndGet();
+                store.put(PlayerId.valueOf(2), Token.authenticated(PlayerId.valueOf(2), 0, 1));
+                Assertions.assertEquals(List.of(PlayerId.valueOf(1)), disconnected);
+            }
+        }
+
+        @Test
+        public void removed() {
+            try (ExpiringSessionStore store = givenAStoreWithPresence(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                store.remove(PlayerId.valueOf(5));
+                store.remove(PlayerId.valueOf(5));
+                Assertions.assertEquals(List.of(PlayerId.valueOf(5)), disconnected);
+            }
+        }
+
+        @Test
+        public void replacedIsNotDisconnected() {
+            try (ExpiringSessionStore store = givenAStoreWithPresence(10)) {
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 1));
+                store.put(PlayerId.valueOf(5), Token.authenticated(PlayerId.valueOf(5), 0, 2));
+                Assertions.assertTrue(disconnected.isEmpty());
+            }
+        }
+
+        @Test
+        public void liveSessionsDisconnectedOnClose() {
+            ExpiringSessionStore store = givenAStoreWithPresence(10);
+            store.put(PlayerId.valueOf(1), Token.authenticated(PlayerId.valueOf(1), 0, 1));
+            store.put(PlayerId.valueOf(2), Token.authenticated(PlayerId.valueOf(2), 0, 1));
+            store.close();
+            Assertions.assertEquals(2, disconnected.size());
+            Assertions.assertTrue(disconnected.containsAll(List.of(PlayerId.valueOf(1), PlayerId.valueOf(2))));
+            Assertions.assertEquals(0, store.size());
+        }
+    }
+}
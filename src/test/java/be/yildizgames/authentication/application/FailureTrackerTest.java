@@ -0,0 +1,162 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.application;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class FailureTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private FailureTracker givenATracker() {
+        return new FailureTracker(3, Duration.ofSeconds(60), Duration.ofSeconds(15), clock::get);
+    }
+
+    private void elapse(Duration d) {
+        clock.addAndGet(d.toNanos());
+    }
+
+    @Nested
+    public class AddFailure {
+
+        @Test
+        public void belowMaximum() {
+            try (FailureTracker tracker = givenATracker()) {
+                Assertions.assertFalse(tracker.addFailure("test"));
+                Assertions.assertFalse(tracker.addFailure("test"));
+                Assertions.assertFalse(tracker.isBanned("test"));
+            }
+        }
+
+        @Test
+        public void maximumReached() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                tracker.addFailure("test");
+                Assertions.assertTrue(tracker.addFailure("test"));
+                Assertions.assertTrue(tracker.isBanned("test"));
+                Assertions.assertFalse(tracker.isBanned("other"));
+            }
+        }
+
+        @Test
+        public void failuresOutOfWindowAreIgnored() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                tracker.addFailure("test");
+                elapse(Duration.ofSeconds(61));
+                Assertions.assertFalse(tracker.addFailure("test"));
+                Assertions.assertFalse(tracker.isBanned("test"));
+            }
+        }
+
+        @Test
+        public void windowSlides() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                elapse(Duration.ofSeconds(40));
+                tracker.addFailure("test");
+                elapse(Duration.ofSeconds(30));
+                Assertions.assertFalse(tracker.addFailure("test"));
+                Assertions.assertTrue(tracker.addFailure("test"));
+            }
+        }
+    }
+
+    @Nested
+    public class IsBanned {
+
+        @Test
+        public void banExpires() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                tracker.addFailure("test");
+                tracker.addFailure("test");
+                elapse(Duration.ofSeconds(14));
+                Assertions.assertTrue(tracker.isBanned("test"));
+                elapse(Duration.ofSeconds(2));
+                Assertions.assertFalse(tracker.isBanned("test"));
+            }
+        }
+    }
+
+    @Nested
+    public class Reset {
+
+        @Test
+        public void happyFlow() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                tracker.addFailure("test");
+                tracker.reset("test");
+                Assertions.assertFalse(tracker.addFailure("test"));
+                Assertions.assertEquals(1, tracker.size());
+            }
+        }
+    }
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void expiredEntriesAreRemoved() {
+            try (FailureTracker tracker = givenATracker()) {
+                tracker.addFailure("test");
+                tracker.addFailure("test2");
+                elapse(Duration.ofSeconds(30));
+                tracker.addFailure("test2");
+                elapse(Duration.ofSeconds(35));
+                tracker.advance();
+                Assertions.assertEquals(1, tracker.size());
+                elapse(Duration.ofSeconds(30));
+                tracker.advance();
+                Assertions.assertEquals(0, tracker.size());
+            }
+        }
+
+        @Test
+        public void bannedEntriesAreKeptUntilBanEnds() {
+            try (FailureTracker tracker = new FailureTracker(1, Duration.ofSeconds(10), Duration.ofSeconds(600), clock::get)) {
+                tracker.addFailure("test");
+                elapse(Duration.ofSeconds(300));
+                tracker.advance();
+                Assertions.assertTrue(tracker.isBanned("test"));
+                elapse(Duration.ofSeconds(302));
+                tracker.advance();
+                Assertions.assertEquals(0, tracker.size());
+            }
+        }
+    }
+}
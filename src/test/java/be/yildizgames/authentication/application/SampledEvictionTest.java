@@ -0,0 +1,81 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.authentication.application;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class SampledEvictionTest {
+
+    @Test
+    public void emptyMap() {
+        Assertions.assertNull(SampledEviction.leastRecentlyUsed(new ConcurrentHashMap<String, Long>(), v -> v));
+    }
+
+    @Test
+    public void smallMapFullySampled() {
+        Map<String, Long> map = new ConcurrentHashMap<>();
+        for (long i = 0; i < SampledEviction.SAMPLE; i++) {
+            map.put("key" + i, 100 - i);
+        }
+        Assertions.assertEquals("key" + (SampledEviction.SAMPLE - 1), SampledEviction.leastRecentlyUsed(map, v -> v).getKey());
+    }
+
+    @Test
+    public void sampleStartsAtRandomPoint() {
+        Map<Integer, Long> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, 0L);
+        }
+        Set<Integer> evicted = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            evicted.add(SampledEviction.leastRecentlyUsed(map, v -> v).getKey());
+        }
+        Assertions.assertTrue(evicted.size() > 10);
+    }
+
+    @Test
+    public void evictionsSpreadOverTheMap() {
+        Map<Integer, Long> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, 0L);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            Map.Entry<Integer, Long> oldest = SampledEviction.leastRecentlyUsed(map, v -> v);
+            map.remove(oldest.getKey(), oldest.getValue());
+        }
+        long firstHalf = map.keySet().stream().filter(k -> k < 5_000).count();
+        Assertions.assertTrue(firstHalf > 1_000 && firstHalf < 4_000);
+    }
+}
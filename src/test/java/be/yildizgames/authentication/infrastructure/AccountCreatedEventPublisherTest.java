@@ -0,0 +1,127 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import be.yildizgames.module.messaging.AsyncMessageProducer;
+import be.yildizgames.module.messaging.BrokerMessageHeader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class AccountCreatedEventPublisherTest {
+
+    private static final Instant NOW = Instant.parse("2020-01-02T03:04:05Z");
+
+    @Test
+    public void encodeSingle() {
+        Assertions.assertEquals(
+                "{\"schemaVersion\":1,\"type\":\"AccountCreated\",\"timestamp\":\"2020-01-02T03:04:05Z\",\"login\":\"lo\\\"gin\",\"id\":5000000000}",
+                AccountCreatedEventPublisher.encode(new AccountCreatedEvent("lo\"gin", 5000000000L, NOW)));
+    }
+
+    @Test
+    public void encodeBatch() {
+        Assertions.assertEquals(
+                "{\"schemaVersion\":1,\"type\":\"AccountCreatedBatch\",\"events\":["
+                        + "{\"timestamp\":\"2020-01-02T03:04:05Z\",\"login\":\"a\",\"id\":1},"
+                        + "{\"timestamp\":\"2020-01-02T03:04:05Z\",\"login\":\"b\",\"id\":2}]}",
+                AccountCreatedEventPublisher.encode(Arrays.asList(new AccountCreatedEvent("a", 1, NOW), new AccountCreatedEvent("b", 2, NOW))));
+    }
+
+    @Test
+    public void publishWithoutBatch() {
+        CapturingProducer producer = new CapturingProducer();
+        AccountCreatedEventPublisher publisher = new AccountCreatedEventPublisher(producer);
+        publisher.publish(new AccountCreatedEvent("a", 1, NOW));
+        Assertions.assertEquals(1, producer.messages.size());
+        Assertions.assertTrue(producer.messages.get(0).contains("\"type\":\"AccountCreated\""));
+    }
+
+    @Test
+    public void publishFullBatch() {
+        CapturingProducer producer = new CapturingProducer();
+        try (AccountCreatedEventPublisher publisher = new AccountCreatedEventPublisher(producer, 2, 60000)) {
+            publisher.publish(new AccountCreatedEvent("a", 1, NOW));
+            Assertions.assertTrue(producer.messages.isEmpty());
+            publisher.publish(new AccountCreatedEvent("b", 2, NOW));
+            Assertions.assertEquals(1, producer.messages.size());
+            Assertions.assertTrue(producer.messages.get(0).contains("\"type\":\"AccountCreatedBatch\""));
+        }
+    }
+
+    @Test
+    public void publishAllWithoutBatch() {
+        CapturingProducer producer = new CapturingProducer();
+        AccountCreatedEventPublisher publisher = new AccountCreatedEventPublisher(producer);
+        publisher.publishAll(Arrays.asList(new AccountCreatedEvent("a", 1, NOW), new AccountCreatedEvent("b", 2, NOW)));
+        Assertions.assertEquals(2, producer.messages.size());
+        Assertions.assertTrue(producer.messages.get(0).contains("\"type\":\"AccountCreated\""));
+        Assertions.assertTrue(producer.messages.get(1).contains("\"type\":\"AccountCreated\""));
+    }
+
+    @Test
+    public void publishAllBySize() {
+        CapturingProducer producer = new CapturingProducer();
+        try (AccountCreatedEventPublisher publisher = new AccountCreatedEventPublisher(producer, 2, 60000)) {
+            publisher.publishAll(Arrays.asList(new AccountCreatedEvent("a", 1, NOW), new AccountCreatedEvent("b", 2, NOW), new AccountCreatedEvent("c", 3, NOW)));
+            Assertions.assertEquals(2, producer.messages.size());
+            Assertions.assertTrue(producer.messages.get(0).contains("\"login\":\"b\""));
+            Assertions.assertTrue(producer.messages.get(1).contains("\"login\":\"c\""));
+        }
+    }
+
+    @Test
+    public void closeFlushPendingEvents() {
+        CapturingProducer producer = new CapturingProducer();
+        AccountCreatedEventPublisher publisher = new AccountCreatedEventPublisher(producer, 10, 60000);
+        publisher.publish(new AccountCreatedEvent("a", 1, NOW));
+        publisher.close();
+        Assertions.assertEquals(1, producer.messages.size());
+    }
+
+    @Test
+    public void invalidBatchSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AccountCreatedEventPublisher(new CapturingProducer(), 0, 0));
+    }
+
+    private static final class CapturingProducer implements AsyncMessageProducer {
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void sendMessage(String message, BrokerMessageHeader... headers) {
+            this.messages.add(message);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class KeyedExecutorTest {
+
+    @Test
+    public void sameKeyRunInOrder() throws InterruptedException {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        try (KeyedExecutor executor = new KeyedExecutor("test", 4, 2)) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                executor.execute("login", () -> {
+                    result.add(value);
+                    done.countDown();
+                });
+            }
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void differentKeysRunInParallel() throws InterruptedException {
+        int lanes = 4;
+        String first = "a";
+        String second = "b";
+        while (KeyedExecutor.lane(second, lanes) == KeyedExecutor.lane(first, lanes)) {
+            second = second + "b";
+        }
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        try (KeyedExecutor executor = new KeyedExecutor("test", lanes, 2)) {
+            executor.execute(first, () -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(second, done::countDown);
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void closeWaitsForSubmittedTasks() {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        try (KeyedExecutor executor = new KeyedExecutor("test", 2, 100)) {
+            for (int i = 0; i < 50; i++) {
+                int value = i;
+                executor.execute("login" + i, () -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    result.add(value);
+                });
+            }
+        }
+        Assertions.assertEquals(50, result.size());
+    }
+
+    @Test
+    public void laneInRange() {
+        for (String key : new String[]{"", "a", "login", "another-login", "été"}) {
+            int lane = KeyedExecutor.lane(key, 3);
+            Assertions.assertTrue(lane >= 0 && lane < 3);
+        }
+    }
+
+    @Test
+    public void invalidLanes() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new KeyedExecutor("test", 0, 1));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class MicroBatcherTest {
+
+    @Test
+    public void waitingItemsProcessedTogether() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(11);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        try (MicroBatcher<Integer> batcher = new MicroBatcher<>("test", 1, 5, 100, batch -> {
+            sizes.add(batch.size());
+            batch.forEach(i -> done.countDown());
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })) {
+            batcher.submit("key", 0);
+            for (int i = 1; i <= 10; i++) {
+                batcher.submit("key", i);
+            }
+            blocked.countDown();
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(11, sizes.stream().mapToInt(Integer::intValue).sum());
+        Assertions.assertTrue(sizes.stream().allMatch(s -> s <= 5));
+        Assertions.assertTrue(sizes.size() < 11);
+    }
+
+    @Test
+    public void sameKeyInOrder() throws InterruptedException {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        try (MicroBatcher<Integer> batcher = new MicroBatcher<>("test", 3, 7, 10, batch -> {
+            result.addAll(batch);
+            batch.forEach(i -> done.countDown());
+        })) {
+            for (int i = 0; i < 100; i++) {
+                batcher.submit("login", i);
+            }
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void closeWaitsForSubmittedItems() {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        try (MicroBatcher<Integer> batcher = new MicroBatcher<>("test", 2, 3, 100, batch -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            result.addAll(batch);
+        })) {
+            for (int i = 0; i < 50; i++) {
+                batcher.submit("login" + i, i);
+            }
+        }
+        Assertions.assertEquals(50, result.size());
+    }
+
+    @Test
+    public void invalidBatchSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MicroBatcher<Integer>("test", 1, 0, 1, b -> {}));
+    }
+}
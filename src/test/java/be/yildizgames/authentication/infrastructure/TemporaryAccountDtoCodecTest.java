@@ -0,0 +1,103 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class TemporaryAccountDtoCodecTest {
+
+    private static final TemporaryAccountDtoCodec CODEC = TemporaryAccountDtoCodec.getInstance();
+
+    private static void assertDto(TemporaryAccountDto expected, TemporaryAccountDto actual) {
+        Assertions.assertEquals(expected.login, actual.login);
+        Assertions.assertEquals(expected.password, actual.password);
+        Assertions.assertEquals(expected.email, actual.email);
+        Assertions.assertEquals(expected.language, actual.language);
+    }
+
+    @Nested
+    public class Text {
+
+        @Test
+        public void happyFlow() {
+            TemporaryAccountDto dto = new TemporaryAccountDto("login", "pass@@word:12", "me@me.com", "en");
+            assertDto(dto, CODEC.from(CODEC.to(dto)));
+        }
+
+        @Test
+        public void emptyFields() {
+            TemporaryAccountDto dto = new TemporaryAccountDto("", "", "", "");
+            assertDto(dto, CODEC.from(CODEC.to(dto)));
+        }
+
+        @Test
+        public void truncated() {
+            String message = CODEC.to(new TemporaryAccountDto("login", "password", "me@me.com", "en"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> CODEC.from(message.substring(0, message.length() - 1)));
+        }
+
+        @Test
+        public void trailingContent() {
+            String message = CODEC.to(new TemporaryAccountDto("login", "password", "me@me.com", "en"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> CODEC.from(message + "x"));
+        }
+
+        @Test
+        public void invalidLength() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> CODEC.from(TemporaryAccountDtoCodec.MARKER + "1a:login"));
+        }
+
+        @Test
+        public void unsupportedVersion() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> CODEC.from(TemporaryAccountDtoCodec.MARKER + "25:login"));
+        }
+    }
+
+    @Nested
+    public class Legacy {
+
+        @Test
+        public void happyFlow() {
+            assertDto(new TemporaryAccountDto("login", "password", "me@me.com", "en"), CODEC.from("login@@password@@me@me.com@@en"));
+        }
+
+        @Test
+        public void extraFieldIgnored() {
+            assertDto(new TemporaryAccountDto("login", "password", "me@me.com", "en"), CODEC.from("login@@password@@me@me.com@@en@@other"));
+        }
+
+        @Test
+        public void missingField() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> CODEC.from("login@@password@@me@me.com"));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class VirtualKeyedExecutorTest {
+
+    /**
+     * Platform threads, the tests must run on a JVM without virtual threads too.
+     */
+    private final ThreadFactory threads = r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    };
+
+    @Test
+    public void sameKeyRunInOrder() throws InterruptedException {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        try (VirtualKeyedExecutor executor = new VirtualKeyedExecutor(this.threads, 8)) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                executor.execute("login", () -> {
+                    result.add(value);
+                    done.countDown();
+                });
+            }
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void sameKeyNeverConcurrent() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        try (VirtualKeyedExecutor executor = new VirtualKeyedExecutor(this.threads, 16)) {
+            for (int i = 0; i < 50; i++) {
+                executor.execute("login", () -> {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    Thread.yield();
+                    running.decrementAndGet();
+                });
+            }
+        }
+        Assertions.assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void differentKeysRunInParallel() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        try (VirtualKeyedExecutor executor = new VirtualKeyedExecutor(this.threads, 4)) {
+            executor.execute("a", () -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute("b", done::countDown);
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void failedTaskDoesNotBreakTheKey() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        try (VirtualKeyedExecutor executor = new VirtualKeyedExecutor(this.threads, 4)) {
+            executor.execute("login", () -> {
+                throw new IllegalStateException("expected");
+            });
+            executor.execute("login", done::countDown);
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void closeWaitsForSubmittedTasks() {
+        List<Integer> result = Collections.synchronizedList(new ArrayList<>());
+        try (VirtualKeyedExecutor executor = new VirtualKeyedExecutor(this.threads, 100)) {
+            for (int i = 0; i < 50; i++) {
+                int value = i;
+                executor.execute("login" + (i % 5), () -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    result.add(value);
+                });
+            }
+        }
+        Assertions.assertEquals(50, result.size());
+    }
+
+    @Test
+    public void invalidMaxInFlight() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new VirtualKeyedExecutor(this.threads, 0));
+    }
+}
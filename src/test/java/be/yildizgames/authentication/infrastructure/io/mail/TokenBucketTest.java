@@ -0,0 +1,98 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.io.mail;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void noBurst() {
+        TokenBucket bucket = new TokenBucket(3, clock::get);
+        Assertions.assertEquals(0, bucket.tryAcquire());
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(20), bucket.tryAcquire());
+    }
+
+    @Test
+    public void refill() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+        Assertions.assertEquals(0, bucket.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertEquals(0, bucket.tryAcquire());
+        Assertions.assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    public void idleDoesNotAccumulate() {
+        TokenBucket bucket = new TokenBucket(60, clock::get);
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        Assertions.assertEquals(0, bucket.tryAcquire());
+        Assertions.assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    public void neverMoreThanRateInAMinute() {
+        int rate = 60;
+        TokenBucket bucket = new TokenBucket(rate, clock::get);
+        List<Long> sent = new ArrayList<>();
+        long end = TimeUnit.MINUTES.toNanos(5);
+        while (clock.get() < end) {
+            if (bucket.tryAcquire() == 0) {
+                sent.add(clock.get());
+            } else {
+                clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(7));
+            }
+        }
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        int first = 0;
+        for (int last = 0; last < sent.size(); last++) {
+            while (sent.get(last) - sent.get(first) >= minute) {
+                first++;
+            }
+            Assertions.assertTrue(last - first + 1 <= rate, "More than " + rate + " sends in a minute.");
+        }
+        Assertions.assertTrue(sent.size() >= rate * 4);
+    }
+
+    @Test
+    public void invalidRate() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, clock::get));
+    }
+}
@@ -28,7 +28,9 @@ package be.yildizgames.authentication.infrastructure.persistence;
 
 import be.yildizgames.authentication.application.AccountCreationManager;
 import be.yildizgames.authentication.application.AccountCreator;
+import be.yildizgames.authentication.application.EmailAlreadyExistException;
 import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
 import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
 import be.yildizgames.common.authentication.protocol.TemporaryAccountCreationResultDto;
 import org.junit.jupiter.api.Assertions;
@@ -52,23 +54,18 @@ public class AccountCreationManagerTest {
 
         @Test
         public void happyFlow() {
-            AccountCreationManager acm = new AccountCreationManager(givenAnAccountCreator(true, true), (m) -> {}, (l) -> Paths.get(""));
+            AccountCreationManager acm = new AccountCreationManager(givenAnAccountCreator(true, true), (l) -> Paths.get(""));
             Assertions.assertNotNull(acm);
         }
 
         @Test
         public void withNullAccountCreator() {
-            Assertions.assertThrows(NullPointerException.class, () -> new AccountCreationManager(null, (m) -> {}, (l) -> Paths.get("")));
-        }
-
-        @Test
-        public void withNullEmailService() {
-            Assertions.assertThrows(NullPointerException.class, () -> new AccountCreationManager(givenAnAccountCreator(true, true), null, (l) -> Paths.get("")));
+            Assertions.assertThrows(NullPointerException.class, () -> new AccountCreationManager(null, (l) -> Paths.get("")));
         }
 
         @Test
         public void withNullEmailConfiguration() {
-            Assertions.assertThrows(NullPointerException.class, () -> new AccountCreationManager(givenAnAccountCreator(true, true), (m) -> {}, null));
+            Assertions.assertThrows(NullPointerException.class, () -> new AccountCreationManager(givenAnAccountCreator(true, true), null));
         }
     }
 
@@ -239,6 +236,35 @@ public class AccountCreationManagerTest {
             Assertions.assertTrue(dto.hasError());
         }
 
+        @Test
+        public void emailStoredMeanwhile() {
+            AccountCreationManager m = givenAManager(new AccountCreator() {
+                @Override
+                public boolean loginAlreadyExist(String login) {
+                    return false;
+                }
+
+                @Override
+                public boolean emailAlreadyExist(String email) {
+                    return false;
+                }
+
+                @Override
+                public void create(TemporaryAccountDto dto, UUID token, EmailTemplate email) {
+                    throw new EmailAlreadyExistException("Boum");
+                }
+
+                @Override
+                public void confirm(AccountConfirmationDto validation) {
+
+                }
+            });
+            TemporaryAccountCreationResultDto dto = m.create(new TemporaryAccountDto("loginok", "passwordok", "me@me.com", "en"));
+            Assertions.assertTrue(dto.isEmailExisting());
+            Assertions.assertFalse(dto.isTechnicalIssue());
+            Assertions.assertTrue(dto.hasError());
+        }
+
         @Test
         public void technicalError() {
             AccountCreationManager m = givenAManager(givenAnAccountCreator(false, false, true));
@@ -265,7 +291,7 @@ public class AccountCreationManagerTest {
             }
 
             @Override
-            public void create(TemporaryAccountDto dto, UUID token) {
+            public void create(TemporaryAccountDto dto, UUID token, EmailTemplate email) {
                 if(error) {
                     throw new PersistenceException(new Exception("Boum"));
                 }
@@ -279,7 +305,7 @@ public class AccountCreationManagerTest {
     }
 
     private static AccountCreationManager givenAManager(AccountCreator c) {
-        return new AccountCreationManager(c, (m) -> {}, (l) -> givenATemplatePath());
+        return new AccountCreationManager(c, (l) -> givenATemplatePath());
     }
 
     private static Path givenATemplatePath() {
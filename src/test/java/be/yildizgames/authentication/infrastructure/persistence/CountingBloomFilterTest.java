@@ -0,0 +1,100 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class CountingBloomFilterTest {
+
+    @Nested
+    public class Constructor {
+
+        @Test
+        public void invalidSize() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+        }
+
+        @Test
+        public void invalidRate() {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(10, 1));
+        }
+    }
+
+    @Nested
+    public class MightContain {
+
+        @Test
+        public void added() {
+            CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+            for (int i = 0; i < 1000; i++) {
+                filter.add("login_" + i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                Assertions.assertTrue(filter.mightContain("login_" + i));
+            }
+        }
+
+        @Test
+        public void falsePositiveRate() {
+            CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+            for (int i = 0; i < 1000; i++) {
+                filter.add("login_" + i);
+            }
+            int positives = 0;
+            for (int i = 0; i < 10000; i++) {
+                if (filter.mightContain("unknown_" + i)) {
+                    positives++;
+                }
+            }
+            Assertions.assertTrue(positives < 300);
+        }
+
+        @Test
+        public void removed() {
+            CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+            filter.add("login");
+            filter.add("other");
+            filter.remove("login");
+            Assertions.assertFalse(filter.mightContain("login"));
+            Assertions.assertTrue(filter.mightContain("other"));
+        }
+
+        @Test
+        public void addedTwiceRemovedOnce() {
+            CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+            filter.add("login");
+            filter.add("login");
+            filter.remove("login");
+            Assertions.assertTrue(filter.mightContain("login"));
+        }
+    }
+}
@@ -26,7 +26,23 @@
 
 package be.yildizgames.authentication.infrastructure.persistence;
 
+import be.yildizgames.authentication.application.EmailAlreadyExistException;
+import be.yildizgames.authentication.infrastructure.TemporaryAccountDto;
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
+import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Grégory Van den Borre
@@ -163,7 +179,8 @@ public class DatabaseAccountCreatorTest {
                 Result message = new Result();
                 DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> message.value = m);
                 creator.confirm(givenAnAccountValidationDto());
-                Assertions.assertEquals("{login:existingTemp, id:4}", message.value);
+                Assertions.assertTrue(message.value.startsWith("{\"schemaVersion\":1,\"type\":\"AccountCreated\",\"timestamp\":\""));
+                Assertions.assertTrue(message.value.endsWith("\"login\":\"existingTemp\",\"id\":4}"));
                 try (Connection c = dbcp.getConnection();
                      PreparedStatement stmt = c.prepareStatement("SELECT * FROM TEMP_ACCOUNTS WHERE LOGIN = 'existingTemp'");
                      ResultSet resultSet = stmt.executeQuery()) {
@@ -248,5 +265,146 @@ public class DatabaseAccountCreatorTest {
 
     }*/
 
+    @Nested
+    public class ConfirmAll {
+
+        private DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+            Thread.sleep(500);
+            return new TestingDatabaseInit().init("test_db.xml");
+        }
+
+        private void givenATempAccount(DataBaseConnectionProvider dbcp, String login, String token) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("INSERT INTO TEMP_ACCOUNTS (LOGIN, PASSWORD, EMAIL, CHECK_VALUE) VALUES (?,?,?,?)")) {
+                stmt.setString(1, login);
+                stmt.setString(2, "password");
+                stmt.setString(3, login + "@e.com");
+                stmt.setString(4, token);
+                stmt.executeUpdate();
+            }
+        }
+
+        private int count(DataBaseConnectionProvider dbcp, String table, String login) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE LOGIN = ?")) {
+                stmt.setString(1, login);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        private int occurrences(String message, String value) {
+            int count = 0;
+            for (int i = message.indexOf(value); i >= 0; i = message.indexOf(value, i + 1)) {
+                count++;
+            }
+            return count;
+        }
+
+        @Test
+        public void happyFlow() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                List<String> messages = new ArrayList<>();
+                DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> messages.add(m));
+                givenATempAccount(dbcp, "batchOk1", "batchOkToken1");
+                givenATempAccount(dbcp, "batchOk2", "batchOkToken2");
+                creator.confirmAll(List.of(
+                        new AccountConfirmationDto("batchOk1", "batchOkToken1"),
+                        new AccountConfirmationDto("batchOk2", "batchOkToken2"),
+                        new AccountConfirmationDto("batchOk3", "batchOkNotExisting")));
+                //Batching is disabled by default, every account is notified on its own.
+                String all = String.join("", messages);
+                Assertions.assertEquals(2, messages.size());
+                Assertions.assertEquals(0, occurrences(all, "\"type\":\"AccountCreatedBatch\""));
+                Assertions.assertEquals(1, occurrences(all, "\"login\":\"batchOk1\""));
+                Assertions.assertEquals(1, occurrences(all, "\"login\":\"batchOk2\""));
+                Assertions.assertEquals(0, count(dbcp, "TEMP_ACCOUNTS", "batchOk1"));
+                Assertions.assertEquals(1, count(dbcp, "ACCOUNTS", "batchOk1"));
+                Assertions.assertEquals(1, count(dbcp, "ACCOUNTS", "batchOk2"));
+                Assertions.assertEquals(0, count(dbcp, "ACCOUNTS", "batchOk3"));
+            }
+        }
+
+        @Test
+        public void sameTokenWithAnotherLogin() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                List<String> messages = new ArrayList<>();
+                DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> messages.add(m));
+                givenATempAccount(dbcp, "batchSame1", "batchSameToken1");
+                givenATempAccount(dbcp, "batchSame2", "batchSameToken2");
+                //The wrong login comes first and must not hide the right one.
+                creator.confirmAll(List.of(
+                        new AccountConfirmationDto("batchSameWrong", "batchSameToken1"),
+                        new AccountConfirmationDto("batchSame1", "batchSameToken1"),
+                        new AccountConfirmationDto("batchSame2", "batchSameToken2")));
+                Assertions.assertEquals(1, count(dbcp, "ACCOUNTS", "batchSame1"));
+                Assertions.assertEquals(1, count(dbcp, "ACCOUNTS", "batchSame2"));
+                Assertions.assertEquals(0, count(dbcp, "ACCOUNTS", "batchSameWrong"));
+            }
+        }
+
+        @Test
+        public void olderActiveAccountNotNotified() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                List<String> messages = new ArrayList<>();
+                DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> messages.add(m));
+                try (Connection c = dbcp.getConnection();
+                     PreparedStatement stmt = c.prepareStatement("INSERT INTO ACCOUNTS (LOGIN, ACTIVE) VALUES ('batchOld1', TRUE)")) {
+                    stmt.executeUpdate();
+                }
+                givenATempAccount(dbcp, "batchOld1", "batchOldToken1");
+                givenATempAccount(dbcp, "batchOld2", "batchOldToken2");
+                creator.confirmAll(List.of(
+                        new AccountConfirmationDto("batchOld1", "batchOldToken1"),
+                        new AccountConfirmationDto("batchOld2", "batchOldToken2")));
+                String all = String.join("", messages);
+                Assertions.assertEquals(2, messages.size());
+                Assertions.assertEquals(1, occurrences(all, "\"login\":\"batchOld1\""));
+                Assertions.assertEquals(1, occurrences(all, "\"login\":\"batchOld2\""));
+            }
+        }
+    }
+
+    @Nested
+    public class SameEmail {
+
+        private DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+            Thread.sleep(500);
+            return new TestingDatabaseInit().init("test_db.xml");
+        }
+
+        private EmailTemplate givenAnEmail(String email) {
+            return new EmailTemplate() {
+                @Override
+                public String getTitle() {
+                    return "title";
+                }
+
+                @Override
+                public String getBody() {
+                    return "body";
+                }
+
+                @Override
+                public String getEmail() {
+                    return email;
+                }
+            };
+        }
 
+        @Test
+        public void storedByAnotherLogin() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> {});
+                //Both passed the availability check, the first one is stored, the second one is rejected by the unique email.
+                creator.create(new TemporaryAccountDto("sameEmail1", "passwordok", "sameEmail@e.com", "en"), UUID.randomUUID(), givenAnEmail("sameEmail@e.com"));
+                Assertions.assertThrows(EmailAlreadyExistException.class,
+                        () -> creator.create(new TemporaryAccountDto("sameEmail2", "passwordok", "sameEmail@e.com", "en"), UUID.randomUUID(), givenAnEmail("sameEmail@e.com")));
+                Assertions.assertTrue(creator.loginAlreadyExist("sameEmail1"));
+                Assertions.assertFalse(creator.loginAlreadyExist("sameEmail2"));
+            }
+        }
+    }
 }
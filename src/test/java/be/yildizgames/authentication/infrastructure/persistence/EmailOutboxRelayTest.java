@@ -0,0 +1,151 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class EmailOutboxRelayTest {
+
+    @Test
+    public void backoffDoubles() {
+        Assertions.assertEquals(Duration.ofSeconds(10), EmailOutboxRelay.backoff(1));
+        Assertions.assertEquals(Duration.ofSeconds(20), EmailOutboxRelay.backoff(2));
+        Assertions.assertEquals(Duration.ofSeconds(40), EmailOutboxRelay.backoff(3));
+    }
+
+    @Test
+    public void backoffCapped() {
+        Assertions.assertEquals(Duration.ofHours(1), EmailOutboxRelay.backoff(12));
+        Assertions.assertEquals(Duration.ofHours(1), EmailOutboxRelay.backoff(Integer.MAX_VALUE));
+    }
+
+    @Nested
+    @Tag("database")
+    public class Relay {
+
+        private DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+            Thread.sleep(500);
+            DataBaseConnectionProvider dbcp = new TestingDatabaseInit().init("test_db.xml");
+            this.execute(dbcp, "DELETE FROM EMAIL_OUTBOX");
+            return dbcp;
+        }
+
+        private void givenAnEmail(DataBaseConnectionProvider dbcp, String recipient, String body) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("INSERT INTO EMAIL_OUTBOX (RECIPIENT, TITLE, BODY, STATUS) VALUES (?,?,?,?)")) {
+                stmt.setString(1, recipient);
+                stmt.setString(2, "title");
+                stmt.setString(3, body);
+                stmt.setInt(4, EmailOutboxRelay.STATUS_PENDING);
+                stmt.executeUpdate();
+            }
+        }
+
+        private void execute(DataBaseConnectionProvider dbcp, String query) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement(query)) {
+                stmt.executeUpdate();
+            }
+        }
+
+        private int[] statusAndAttempts(DataBaseConnectionProvider dbcp, String recipient) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("SELECT STATUS, ATTEMPTS FROM EMAIL_OUTBOX WHERE RECIPIENT = ?")) {
+                stmt.setString(1, recipient);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    return new int[]{rs.getInt(1), rs.getInt(2)};
+                }
+            }
+        }
+
+        @Test
+        public void sentAreDeleted() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 EmailOutboxRelay relay = new EmailOutboxRelay(dbcp, t -> {})) {
+                givenAnEmail(dbcp, "relay1@e.com", "body");
+                givenAnEmail(dbcp, "relay2@e.com", "body");
+                Assertions.assertEquals(2, relay.relay());
+                Assertions.assertNull(statusAndAttempts(dbcp, "relay1@e.com"));
+                Assertions.assertNull(statusAndAttempts(dbcp, "relay2@e.com"));
+                Assertions.assertEquals(0, relay.relay());
+            }
+        }
+
+        @Test
+        public void longBody() throws Exception {
+            List<EmailTemplate> sent = Collections.synchronizedList(new ArrayList<>());
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 EmailOutboxRelay relay = new EmailOutboxRelay(dbcp, sent::add)) {
+                String body = "a".repeat(20_000);
+                givenAnEmail(dbcp, "relayLong@e.com", body);
+                Assertions.assertEquals(1, relay.relay());
+                Assertions.assertEquals(body, sent.get(0).getBody());
+            }
+        }
+
+        @Test
+        public void failedAreRetriedThenDead() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 EmailOutboxRelay relay = new EmailOutboxRelay(dbcp, t -> {
+                     throw new IllegalStateException("Mail server down.");
+                 })) {
+                givenAnEmail(dbcp, "relayFailed@e.com", "body");
+                for (int attempt = 1; attempt < 8; attempt++) {
+                    Assertions.assertEquals(1, relay.relay());
+                    Assertions.assertArrayEquals(new int[]{EmailOutboxRelay.STATUS_PENDING, attempt}, statusAndAttempts(dbcp, "relayFailed@e.com"));
+                    //Not retried before its backoff.
+                    Assertions.assertEquals(0, relay.relay());
+                    execute(dbcp, "UPDATE EMAIL_OUTBOX SET NEXT_ATTEMPT = TIMESTAMP '2000-01-01 00:00:00'");
+                }
+                Assertions.assertEquals(1, relay.relay());
+                Assertions.assertArrayEquals(new int[]{EmailOutboxRelay.STATUS_DEAD, 8}, statusAndAttempts(dbcp, "relayFailed@e.com"));
+                execute(dbcp, "UPDATE EMAIL_OUTBOX SET NEXT_ATTEMPT = TIMESTAMP '2000-01-01 00:00:00'");
+                Assertions.assertEquals(0, relay.relay());
+            }
+        }
+    }
+}
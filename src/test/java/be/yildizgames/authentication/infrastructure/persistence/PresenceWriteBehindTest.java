@@ -0,0 +1,193 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class PresenceWriteBehindTest {
+
+    private static final Timestamp FIRST = new Timestamp(1000);
+
+    private static final Timestamp SECOND = new Timestamp(2000);
+
+    @Test
+    public void newerConnectionWins() {
+        PresenceWriteBehind.PresenceChange merged = new PresenceWriteBehind.PresenceChange(true, FIRST)
+                .merge(new PresenceWriteBehind.PresenceChange(true, SECOND));
+        Assertions.assertTrue(merged.online);
+        Assertions.assertEquals(SECOND, merged.lastConnection);
+    }
+
+    @Test
+    public void disconnectionKeepsLastConnection() {
+        PresenceWriteBehind.PresenceChange merged = new PresenceWriteBehind.PresenceChange(true, FIRST)
+                .merge(new PresenceWriteBehind.PresenceChange(false, null));
+        Assertions.assertFalse(merged.online);
+        Assertions.assertEquals(FIRST, merged.lastConnection);
+    }
+
+    @Test
+    public void disconnectionOnly() {
+        PresenceWriteBehind.PresenceChange merged = new PresenceWriteBehind.PresenceChange(false, null)
+                .merge(new PresenceWriteBehind.PresenceChange(false, null));
+        Assertions.assertFalse(merged.online);
+        Assertions.assertNull(merged.lastConnection);
+    }
+
+    @Nested
+    @Tag("database")
+    public class Flush {
+
+        private DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+            Thread.sleep(500);
+            return new TestingDatabaseInit().init("test_db.xml");
+        }
+
+        private PresenceWriteBehind givenAWriter(DataBaseConnectionProvider dbcp) {
+            //Long interval, the test flushes by itself.
+            return new PresenceWriteBehind(dbcp, () -> 3_600_000L);
+        }
+
+        private PlayerId idOf(DataBaseConnectionProvider dbcp, String login) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("SELECT ID FROM ACCOUNTS WHERE LOGIN = ?")) {
+                stmt.setString(1, login);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return PlayerId.valueOf(rs.getInt(1));
+                }
+            }
+        }
+
+        private boolean isOnline(DataBaseConnectionProvider dbcp, PlayerId id) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("SELECT ONLINE FROM ACCOUNTS WHERE ID = ?")) {
+                stmt.setInt(1, id.value);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return rs.getBoolean(1);
+                }
+            }
+        }
+
+        private Timestamp lastConnection(DataBaseConnectionProvider dbcp, PlayerId id) throws SQLException {
+            try (Connection c = dbcp.getConnection();
+                 PreparedStatement stmt = c.prepareStatement("SELECT LAST_CONNECTION FROM ACCOUNTS WHERE ID = ?")) {
+                stmt.setInt(1, id.value);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return rs.getTimestamp(1);
+                }
+            }
+        }
+
+        @Test
+        public void connected() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 PresenceWriteBehind presence = givenAWriter(dbcp)) {
+                PlayerId id = idOf(dbcp, "existing");
+                Timestamp before = lastConnection(dbcp, id);
+                Thread.sleep(10);
+                presence.connected(id);
+                Assertions.assertEquals(1, presence.flush());
+                Assertions.assertTrue(isOnline(dbcp, id));
+                Assertions.assertTrue(lastConnection(dbcp, id).after(before));
+                Assertions.assertEquals(0, presence.getPendingCount());
+            }
+        }
+
+        @Test
+        public void disconnectedKeepsLastConnection() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 PresenceWriteBehind presence = givenAWriter(dbcp)) {
+                PlayerId id = idOf(dbcp, "existing");
+                presence.connected(id);
+                presence.flush();
+                Timestamp connection = lastConnection(dbcp, id);
+                presence.disconnected(id);
+                Assertions.assertEquals(1, presence.flush());
+                Assertions.assertFalse(isOnline(dbcp, id));
+                Assertions.assertEquals(connection, lastConnection(dbcp, id));
+            }
+        }
+
+        @Test
+        public void severalPlayersInOneBatch() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 PresenceWriteBehind presence = givenAWriter(dbcp)) {
+                PlayerId first = idOf(dbcp, "existing");
+                PlayerId second = idOf(dbcp, "invalidSalt");
+                presence.connected(first);
+                presence.connected(second);
+                presence.flush();
+                presence.disconnected(first);
+                presence.connected(second);
+                Assertions.assertEquals(2, presence.flush());
+                Assertions.assertFalse(isOnline(dbcp, first));
+                Assertions.assertTrue(isOnline(dbcp, second));
+            }
+        }
+
+        @Test
+        public void resetOnline() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 PresenceWriteBehind presence = givenAWriter(dbcp)) {
+                PlayerId first = idOf(dbcp, "existing");
+                PlayerId second = idOf(dbcp, "invalidSalt");
+                presence.connected(first);
+                presence.connected(second);
+                presence.flush();
+                Assertions.assertEquals(2, presence.resetOnline());
+                Assertions.assertFalse(isOnline(dbcp, first));
+                Assertions.assertFalse(isOnline(dbcp, second));
+                Assertions.assertEquals(0, presence.resetOnline());
+            }
+        }
+
+        @Test
+        public void nothingToWrite() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 PresenceWriteBehind presence = givenAWriter(dbcp)) {
+                Assertions.assertEquals(0, presence.flush());
+            }
+        }
+    }
+}
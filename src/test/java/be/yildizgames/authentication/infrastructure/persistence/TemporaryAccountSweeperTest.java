@@ -0,0 +1,149 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.common.authentication.protocol.AccountConfirmationDto;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Grégory Van den Borre
+ */
+@Tag("database")
+public class TemporaryAccountSweeperTest {
+
+    private static final Timestamp EXPIRED = Timestamp.from(Instant.parse("2000-01-01T00:00:00Z"));
+
+    private static DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+        Thread.sleep(500);
+        return new TestingDatabaseInit().init("test_db.xml");
+    }
+
+    private static TemporaryAccountSweeper givenASweeper(DataBaseConnectionProvider dbcp, AccountExistenceFilter filter) {
+        return new TemporaryAccountSweeper(dbcp, filter, Duration.ofHours(1), Duration.ofHours(1), 10);
+    }
+
+    private static void givenATempAccount(DataBaseConnectionProvider dbcp, String login, Timestamp date) throws SQLException {
+        try (Connection c = dbcp.getConnection();
+             PreparedStatement stmt = c.prepareStatement("INSERT INTO TEMP_ACCOUNTS (LOGIN, PASSWORD, EMAIL, CHECK_VALUE, DATE) VALUES (?,?,?,?,?)")) {
+            stmt.setString(1, login);
+            stmt.setString(2, "password");
+            stmt.setString(3, login + "@e.com");
+            stmt.setString(4, login + "Token");
+            stmt.setTimestamp(5, date);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int count(DataBaseConnectionProvider dbcp, String table, String login) throws SQLException {
+        try (Connection c = dbcp.getConnection();
+             PreparedStatement stmt = c.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE LOGIN = ?")) {
+            stmt.setString(1, login);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    @Nested
+    public class Sweep {
+
+        @Test
+        public void expiredRemovedFreshKept() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                givenATempAccount(dbcp, "sweepExpired", EXPIRED);
+                givenATempAccount(dbcp, "sweepFresh", Timestamp.from(Instant.now()));
+                AccountExistenceFilter filter = new AccountExistenceFilter(1_000, 0.001);
+                filter.load(dbcp);
+                try (TemporaryAccountSweeper sweeper = givenASweeper(dbcp, filter)) {
+                    Assertions.assertTrue(sweeper.sweep() >= 1);
+                }
+                Assertions.assertEquals(0, count(dbcp, "TEMP_ACCOUNTS", "sweepExpired"));
+                Assertions.assertEquals(1, count(dbcp, "TEMP_ACCOUNTS", "sweepFresh"));
+                Assertions.assertFalse(filter.mightContainLogin("sweepExpired"));
+                Assertions.assertTrue(filter.mightContainLogin("sweepFresh"));
+            }
+        }
+
+        @Test
+        public void severalChunks() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                for (int i = 0; i < 25; i++) {
+                    givenATempAccount(dbcp, "sweepChunk" + i, EXPIRED);
+                }
+                try (TemporaryAccountSweeper sweeper = givenASweeper(dbcp, AccountExistenceFilter.disabled())) {
+                    Assertions.assertTrue(sweeper.sweep() >= 25);
+                    Assertions.assertEquals(0, sweeper.sweep());
+                }
+                for (int i = 0; i < 25; i++) {
+                    Assertions.assertEquals(0, count(dbcp, "TEMP_ACCOUNTS", "sweepChunk" + i));
+                }
+            }
+        }
+
+        @Test
+        public void confirmedMeanwhileStaysInFilter() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                int size = 200;
+                for (int i = 0; i < size; i++) {
+                    givenATempAccount(dbcp, "sweepRace" + i, EXPIRED);
+                }
+                AccountExistenceFilter filter = new AccountExistenceFilter(1_000, 0.001);
+                filter.load(dbcp);
+                DatabaseAccountCreator creator = new DatabaseAccountCreator(dbcp, (m, h) -> {});
+                try (TemporaryAccountSweeper sweeper = givenASweeper(dbcp, filter)) {
+                    CompletableFuture<Void> confirmations = CompletableFuture.runAsync(() -> {
+                        for (int i = 0; i < size; i++) {
+                            creator.confirm(new AccountConfirmationDto("sweepRace" + i, "sweepRace" + i + "Token"));
+                        }
+                    });
+                    sweeper.sweep();
+                    confirmations.join();
+                }
+                for (int i = 0; i < size; i++) {
+                    String login = "sweepRace" + i;
+                    Assertions.assertEquals(0, count(dbcp, "TEMP_ACCOUNTS", login));
+                    if (count(dbcp, "ACCOUNTS", login) == 1) {
+                        Assertions.assertTrue(filter.mightContainLogin(login), login + " confirmed but removed from the filter.");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ * Copyright (c) 2019 Grégory Van den Borre
+ *
+ * More infos available: https://engine.yildiz-games.be
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.authentication.infrastructure.persistence;
+
+import be.yildizgames.authentication.infrastructure.io.mail.EmailTemplate;
+import be.yildizgames.module.database.DataBaseConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author Grégory Van den Borre
+ */
+@Tag("database")
+public class TemporaryAccountWriterTest {
+
+    private static DataBaseConnectionProvider givenAConnexionProvider() throws Exception {
+        Thread.sleep(500);
+        return new TestingDatabaseInit().init("test_db.xml");
+    }
+
+    private static CompletableFuture<Void> write(TemporaryAccountWriter writer, String login, String token) {
+        return writer.write(login, "password", login + "@e.com", token, new Timestamp(System.currentTimeMillis()), new TestEmail(login + "@e.com"));
+    }
+
+    private static int count(DataBaseConnectionProvider dbcp, String query, String value) throws SQLException {
+        try (Connection c = dbcp.getConnection();
+             PreparedStatement stmt = c.prepareStatement(query)) {
+            stmt.setString(1, value);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static int outbox(DataBaseConnectionProvider dbcp, String login) throws SQLException {
+        return count(dbcp, "SELECT COUNT(*) FROM EMAIL_OUTBOX WHERE RECIPIENT = ?", login + "@e.com");
+    }
+
+    private static int temp(DataBaseConnectionProvider dbcp, String login) throws SQLException {
+        return count(dbcp, "SELECT COUNT(*) FROM TEMP_ACCOUNTS WHERE LOGIN = ?", login);
+    }
+
+    @Nested
+    public class Write {
+
+        @Test
+        public void happyFlow() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 TemporaryAccountWriter writer = new TemporaryAccountWriter(dbcp, 10, 50)) {
+                CompletableFuture.allOf(write(writer, "writerOk1", "writerOkToken1"), write(writer, "writerOk2", "writerOkToken2")).join();
+                Assertions.assertEquals(1, temp(dbcp, "writerOk1"));
+                Assertions.assertEquals(1, temp(dbcp, "writerOk2"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerOk1"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerOk2"));
+            }
+        }
+
+        @Test
+        public void duplicateTokenInGroup() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 TemporaryAccountWriter writer = new TemporaryAccountWriter(dbcp, 10, 200)) {
+                CompletableFuture<Void> first = write(writer, "writerDup1", "writerDupToken1");
+                CompletableFuture<Void> duplicate = write(writer, "writerDup2", "azerty");
+                CompletableFuture<Void> third = write(writer, "writerDup3", "writerDupToken3");
+                first.join();
+                third.join();
+                CompletionException e = Assertions.assertThrows(CompletionException.class, duplicate::join);
+                Assertions.assertTrue(e.getCause() instanceof PersistenceException);
+                //The next batch on the same connection must not replay the rows of the failed one.
+                write(writer, "writerDup4", "writerDupToken4").join();
+                Assertions.assertEquals(1, temp(dbcp, "writerDup1"));
+                Assertions.assertEquals(0, temp(dbcp, "writerDup2"));
+                Assertions.assertEquals(1, temp(dbcp, "writerDup3"));
+                Assertions.assertEquals(1, temp(dbcp, "writerDup4"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerDup1"));
+                Assertions.assertEquals(0, outbox(dbcp, "writerDup2"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerDup3"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerDup4"));
+            }
+        }
+
+        @Test
+        public void duplicateEmail() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider();
+                 TemporaryAccountWriter writer = new TemporaryAccountWriter(dbcp, 10, 50)) {
+                write(writer, "writerEmail1", "writerEmailToken1").join();
+                CompletableFuture<Void> duplicate = writer.write("writerEmail2", "password", "writerEmail1@e.com", "writerEmailToken2",
+                        new Timestamp(System.currentTimeMillis()), new TestEmail("writerEmail1@e.com"));
+                CompletionException e = Assertions.assertThrows(CompletionException.class, duplicate::join);
+                Assertions.assertTrue(e.getCause() instanceof PersistenceException);
+                Assertions.assertEquals(1, temp(dbcp, "writerEmail1"));
+                Assertions.assertEquals(0, temp(dbcp, "writerEmail2"));
+                Assertions.assertEquals(1, outbox(dbcp, "writerEmail1"));
+            }
+        }
+
+        @Test
+        public void afterClose() throws Exception {
+            try (DataBaseConnectionProvider dbcp = givenAConnexionProvider()) {
+                TemporaryAccountWriter writer = new TemporaryAccountWriter(dbcp, 10, 50);
+                writer.close();
+                CompletionException e = Assertions.assertThrows(CompletionException.class, () -> write(writer, "writerClosed", "writerClosedToken").join());
+                Assertions.assertTrue(e.getCause() instanceof PersistenceException);
+                Assertions.assertEquals(0, temp(dbcp, "writerClosed"));
+            }
+        }
+    }
+
+    private static final class TestEmail implements EmailTemplate {
+
+        private final String email;
+
+        private TestEmail(String email) {
+            super();
+            this.email = email;
+        }
+
+        @Override
+        public String getTitle() {
+            return "title";
+        }
+
+        @Override
+        public String getBody() {
+            return "body";
+        }
+
+        @Override
+        public String getEmail() {
+            return this.email;
+        }
+    }
+}